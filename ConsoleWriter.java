@@ -0,0 +1,51 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The one way background threads (startup, warm-up) talk to the console.
+ *
+ * Their messages are queued and printed by the console thread at safe points,
+ * before the next prompt or between progress lines, so they never land in the
+ * middle of a line the user is typing or a table being printed.
+ */
+public class ConsoleWriter {
+
+    private static final List<String> pending = new ArrayList<>();
+    private static final List<PrintStream> streams = new ArrayList<>();
+
+    private ConsoleWriter() {
+    }
+
+    // --- Called from any thread ---
+    public static synchronized void post(String message) {
+        pending.add(message);
+        streams.add(System.out);
+    }
+
+    public static synchronized void postError(String message) {
+        pending.add(message);
+        streams.add(System.err);
+    }
+
+    public static synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    // --- Called from the console thread: print everything queued so far ---
+    public static synchronized void flush() {
+        for (int i = 0; i < pending.size(); i++) {
+            streams.get(i).println(pending.get(i));
+        }
+        pending.clear();
+        streams.clear();
+        System.err.flush();
+    }
+
+    // Queued messages first, then the prompt
+    public static synchronized void prompt(String prompt) {
+        flush();
+        System.out.print(prompt);
+        System.out.flush();
+    }
+}
@@ -0,0 +1,322 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk-loads a CSV file (plain or gzip-compressed) into an existing table.
+ *
+ * One thread streams and decompresses the input and cuts it into chunks of
+ * records; the chunks are split into fields and converted to the column types
+ * on the fork-join pool, and each finished chunk is sent, in file order, as one
+ * JDBC batch. At most a few chunks are in flight, so memory use does not grow
+ * with the file size. The whole load is one transaction.
+ */
+public class CsvLoader {
+
+    private static final int RECORDS_PER_CHUNK = 2000;
+    private static final int MAX_CHUNKS_IN_FLIGHT = Math.max(2, ForkJoinPool.commonPool().getParallelism() * 2);
+
+    // CSV headers in Final/ that differ from the table's column names; "" drops the CSV column
+    private static final Map<String, Map<String, String>> HEADER_ALIASES = Map.of(
+        "team", Map.of("team", "team_abbr"),
+        "official", Map.of("game_key", "game_id"),
+        "played_in", Map.of("gsis", "game_id", "game_id", "")
+    );
+
+    private static class Chunk {
+        final List<String> records;
+        final long[] lines; // physical line each record starts on, for error messages
+
+        Chunk(List<String> records, long[] lines) {
+            this.records = records;
+            this.lines = lines;
+        }
+    }
+
+    // --- Reads one CSV record at a time, counting physical lines; a quoted field may span several lines ---
+    static class RecordReader {
+        private final BufferedReader reader;
+        private long linesRead = 0;
+        private long recordLine = 0;
+
+        RecordReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        String next() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            recordLine = ++linesRead;
+            boolean open = toggleQuotes(line, false);
+            if (!open) {
+                return line;
+            }
+            // Only each new line is scanned; the quote state carries over
+            StringBuilder record = new StringBuilder(line);
+            while (open) {
+                String next = reader.readLine();
+                if (next == null) {
+                    break;
+                }
+                linesRead++;
+                record.append('\n').append(next);
+                open = toggleQuotes(next, open);
+            }
+            return record.toString();
+        }
+
+        // Line the record last returned by next() started on (1 = first line of the file)
+        long recordLine() {
+            return recordLine;
+        }
+    }
+
+    // --- The table's name as the database spells it; IOException if there is no such table ---
+    private static String existingTable(Connection connection, String table) throws IOException, SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, null, new String[] { "TABLE" })) {
+            while (rs.next()) {
+                String name = rs.getString("TABLE_NAME");
+                if (name.equalsIgnoreCase(table)) {
+                    return name;
+                }
+            }
+        }
+        throw new IOException("Unknown table '" + table + "'. Use 'snapshot' to see the tables.");
+    }
+
+    // Bracket-quoted identifier, as in Metric.sqlName
+    private static String quote(String identifier) {
+        return "[" + identifier.replace("]", "]]") + "]";
+    }
+
+    // --- Load every record of the file; returns the number of rows inserted ---
+    public static int load(Connection connection, String table, String filename) throws IOException, SQLException {
+        // The name is user input: it must be an existing table before it goes into any SQL
+        String tableName = existingTable(connection, table);
+
+        // Column names and types come from the table itself
+        List<String> tableColumns = new ArrayList<>();
+        List<Integer> tableTypes = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT TOP 0 * FROM " + quote(tableName))) {
+            ResultSetMetaData rsmd = rs.getMetaData();
+            for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+                tableColumns.add(rsmd.getColumnName(i).toLowerCase(Locale.ROOT));
+                tableTypes.add(rsmd.getColumnType(i));
+            }
+        }
+
+        try (BufferedReader input = new BufferedReader(new InputStreamReader(SqlDump.openInput(filename), StandardCharsets.UTF_8))) {
+            RecordReader reader = new RecordReader(input);
+            String header = reader.next();
+            if (header == null) {
+                throw new IOException(filename + " is empty");
+            }
+            if (header.startsWith("\uFEFF")) {
+                header = header.substring(1); // byte order mark written by Excel
+            }
+
+            // Map CSV positions to table columns
+            Map<String, String> aliases = HEADER_ALIASES.getOrDefault(table, Collections.emptyMap());
+            List<String> headerFields = splitRecord(header);
+            List<Integer> csvIndex = new ArrayList<>();
+            List<Integer> sqlTypes = new ArrayList<>();
+            List<String> insertColumns = new ArrayList<>();
+            for (int i = 0; i < headerFields.size(); i++) {
+                String name = headerFields.get(i).trim().toLowerCase(Locale.ROOT);
+                name = aliases.getOrDefault(name, name);
+                int column = tableColumns.indexOf(name);
+                if (column < 0 || insertColumns.contains(name)) {
+                    continue;
+                }
+                csvIndex.add(i);
+                sqlTypes.add(tableTypes.get(column));
+                insertColumns.add(name);
+            }
+            if (insertColumns.isEmpty()) {
+                throw new IOException("No CSV column of " + filename + " matches a column of " + table);
+            }
+
+            List<String> quotedColumns = new ArrayList<>();
+            for (String column : insertColumns) {
+                quotedColumns.add(quote(column));
+            }
+            String sql = "INSERT INTO " + quote(tableName) + " (" + String.join(", ", quotedColumns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(insertColumns.size(), "?")) + ")";
+
+            connection.setAutoCommit(false);
+            int inserted = 0;
+            try (PreparedStatement pStmt = connection.prepareStatement(sql)) {
+                Deque<Future<List<Object[]>>> inFlight = new ArrayDeque<>();
+                List<String> records = new ArrayList<>(RECORDS_PER_CHUNK);
+                long[] lines = new long[RECORDS_PER_CHUNK];
+                String record;
+                while ((record = reader.next()) != null) {
+                    if (record.isEmpty()) {
+                        continue;
+                    }
+                    lines[records.size()] = reader.recordLine();
+                    records.add(record);
+                    if (records.size() == RECORDS_PER_CHUNK) {
+                        inFlight.add(submit(new Chunk(records, lines), csvIndex, sqlTypes));
+                        records = new ArrayList<>(RECORDS_PER_CHUNK);
+                        lines = new long[RECORDS_PER_CHUNK];
+                        if (inFlight.size() >= MAX_CHUNKS_IN_FLIGHT) {
+                            inserted += insertBatch(pStmt, inFlight.poll(), sqlTypes);
+                        }
+                    }
+                }
+                if (!records.isEmpty()) {
+                    inFlight.add(submit(new Chunk(records, lines), csvIndex, sqlTypes));
+                }
+                while (!inFlight.isEmpty()) {
+                    inserted += insertBatch(pStmt, inFlight.poll(), sqlTypes);
+                }
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            return inserted;
+        }
+    }
+
+    private static Future<List<Object[]>> submit(Chunk chunk, List<Integer> csvIndex, List<Integer> sqlTypes) {
+        return ForkJoinPool.commonPool().submit(() -> parseChunk(chunk, csvIndex, sqlTypes));
+    }
+
+    // --- Runs on the pool: split and convert one chunk of records ---
+    private static List<Object[]> parseChunk(Chunk chunk, List<Integer> csvIndex, List<Integer> sqlTypes) {
+        List<Object[]> rows = new ArrayList<>(chunk.records.size());
+        for (int r = 0; r < chunk.records.size(); r++) {
+            List<String> fields = splitRecord(chunk.records.get(r));
+            Object[] row = new Object[csvIndex.size()];
+            for (int i = 0; i < row.length; i++) {
+                int index = csvIndex.get(i);
+                String field = index < fields.size() ? fields.get(index).trim() : "";
+                try {
+                    row[i] = convert(field, sqlTypes.get(i));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad number '" + field + "' on line " + chunk.lines[r], e);
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Object convert(String field, int sqlType) {
+        if (field.isEmpty() || field.equalsIgnoreCase("NULL")) {
+            return null;
+        }
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return Integer.valueOf(field);
+            case Types.BIGINT:
+                return Long.valueOf(field);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return new BigDecimal(field);
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+                return Double.valueOf(field);
+            default:
+                return field;
+        }
+    }
+
+    private static int insertBatch(PreparedStatement pStmt, Future<List<Object[]>> chunk, List<Integer> sqlTypes)
+            throws IOException, SQLException {
+        List<Object[]> rows;
+        try {
+            rows = chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing CSV", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] == null) {
+                    pStmt.setNull(i + 1, sqlTypes.get(i));
+                } else {
+                    pStmt.setObject(i + 1, row[i]);
+                }
+            }
+            pStmt.addBatch();
+        }
+        pStmt.executeBatch();
+        return rows.size();
+    }
+
+    // Quote state after the line, given the state before it
+    private static boolean toggleQuotes(String line, boolean open) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                open = !open;
+            }
+        }
+        return open;
+    }
+
+    // --- Split on commas outside quotes; "" inside quotes is a literal quote ---
+    static List<String> splitRecord(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,414 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Command-line replacement for the browser-based Final/index.html generator:
+ * turns CSV files into a CREATE TABLE plus 100-row INSERT ... VALUES blocks.
+ *
+ *   java CsvToSql [-o out.sql] [-flavor sqlserver|mysql|postgresql|sqlite] [-sample n] file.csv[=table] ...
+ *
+ * Type inference follows index.html: a column is INT if every sampled value is
+ * an integer, DECIMAL(10, 2) if every value is a number, DATETIME if every value
+ * is a date, otherwise VARCHAR(255) (TEXT past 255 characters). Empty fields are
+ * NULL. Each file is read twice as a stream (a sampling pass over the first rows,
+ * then the full conversion), so memory use does not depend on the file size.
+ * A value past the sample that does not fit its column (1.5 in an INT column)
+ * widens the column, so the CREATE TABLE is only written once the whole file
+ * has been converted. When a column stops being numeric the current INSERT is
+ * ended, so no VALUES list mixes bare numbers and quoted strings in one column.
+ *
+ * Files are converted in parallel, each into its own temporary file written
+ * through a buffered channel; the parts are then appended to the output in
+ * command-line order. Input files may be gzip-compressed.
+ */
+public class CsvToSql {
+
+    private static final String DEFAULT_OUTPUT = "generated.sql";
+    private static final int DEFAULT_SAMPLE_ROWS = 500; // same as index.html
+    private static final int ROWS_PER_INSERT = 100;
+    private static final int OUTPUT_BUFFER_CHARS = 64 * 1024;
+
+    private static final Pattern INTEGER = Pattern.compile("-?\\d+");
+    private static final Pattern NUMBER = Pattern.compile("-?(\\d+(\\.\\d+)?|\\.\\d+)");
+    private static final DateTimeFormatter[] DATE_TIMES = {
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]")
+    };
+    private static final DateTimeFormatter[] DATES = {
+        DateTimeFormatter.ISO_LOCAL_DATE,
+        DateTimeFormatter.ofPattern("M/d/yyyy")
+    };
+
+    // --- What the sampling pass learned about one column ---
+    private static class ColumnType {
+        boolean isInt = true;
+        boolean isFloat = true;
+        boolean isDate = true;
+        int maxLength = 0;
+
+        void sample(String value) {
+            maxLength = Math.max(maxLength, value.length());
+            if (isInt && !INTEGER.matcher(value).matches()) {
+                isInt = false;
+            }
+            if (isFloat && !NUMBER.matcher(value).matches()) {
+                isFloat = false;
+            }
+            if (isDate && (NUMBER.matcher(value).matches() || !parsesAsDate(value))) {
+                isDate = false;
+            }
+        }
+
+        boolean numeric() {
+            return isInt || isFloat;
+        }
+
+        String sqlType(String flavor) {
+            if (isInt) {
+                return "INT";
+            }
+            if (isFloat) {
+                return flavor.equals("postgresql") ? "NUMERIC" : "DECIMAL(10, 2)";
+            }
+            if (isDate) {
+                return flavor.equals("sqlite") ? "TEXT" : "DATETIME"; // SQLite has no native date
+            }
+            return maxLength > 255 ? "TEXT" : "VARCHAR(255)";
+        }
+    }
+
+    // --- One input file and its outcome ---
+    private static class Job {
+        final String filename;
+        final String table;
+        Path part;
+        int rows;
+        int columns;
+        String schema;                               // CREATE TABLE, with the final column types
+        final List<String> widened = new ArrayList<>(); // "column (sampled -> final type)"
+
+        Job(String filename, String table) {
+            this.filename = filename;
+            this.table = table;
+        }
+    }
+
+    public static void main(String[] args) {
+        String output = DEFAULT_OUTPUT;
+        String flavor = "sqlserver";
+        int sampleRows = DEFAULT_SAMPLE_ROWS;
+        List<Job> jobs = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-o") && i + 1 < args.length) {
+                    output = args[++i];
+                } else if (args[i].equals("-flavor") && i + 1 < args.length) {
+                    flavor = args[++i].toLowerCase(Locale.ROOT);
+                } else if (args[i].equals("-sample") && i + 1 < args.length) {
+                    sampleRows = Integer.parseInt(args[++i]);
+                } else if (args[i].startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+                } else {
+                    int equals = args[i].lastIndexOf('=');
+                    String filename = equals > 0 ? args[i].substring(0, equals) : args[i];
+                    String table = equals > 0 ? args[i].substring(equals + 1) : new File(filename).getName();
+                    jobs.add(new Job(filename, tableName(table)));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: " + e.getMessage());
+            jobs.clear();
+        }
+        if (jobs.isEmpty()) {
+            System.err.println("Usage: java CsvToSql [-o out.sql] [-flavor sqlserver|mysql|postgresql|sqlite] [-sample n] file.csv[=table] ...");
+            System.exit(1);
+        }
+
+        try {
+            long start = System.nanoTime();
+            convert(jobs, output, flavor, sampleRows);
+            int rows = 0;
+            for (Job job : jobs) {
+                rows += job.rows;
+                System.out.printf("   %-28s -> %-20s %,8d rows, %d columns%n", job.filename, job.table, job.rows, job.columns);
+                if (!job.widened.isEmpty()) {
+                    System.out.println("⚠️ Warning: Values in " + job.filename + " did not fit the types inferred from the first "
+                        + sampleRows + " rows; widened " + String.join(", ", job.widened) + ".");
+                }
+            }
+            System.out.printf("✅ Wrote %,d rows from %d files to %s in %.0f ms%n", rows, jobs.size(), output, (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.err.println("❌ Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // --- Convert every file on the common pool, then join the parts in order ---
+    private static void convert(List<Job> jobs, String output, String flavor, int sampleRows) throws IOException {
+        List<Future<Job>> running = new ArrayList<>();
+        try {
+            for (Job job : jobs) {
+                job.part = Files.createTempFile("csv2sql-" + job.table + "-", ".sql");
+                running.add(ForkJoinPool.commonPool().submit(() -> convertFile(job, flavor, sampleRows)));
+            }
+        } catch (IOException e) {
+            deleteParts(jobs);
+            throw e;
+        }
+
+        try (FileChannel out = FileChannel.open(Paths.get(output),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Future<Job> future : running) {
+                Job job = join(future);
+                ByteBuffer schema = ByteBuffer.wrap(job.schema.getBytes(StandardCharsets.UTF_8));
+                while (schema.hasRemaining()) {
+                    out.write(schema);
+                }
+                try (FileChannel part = FileChannel.open(job.part, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = part.size();
+                    while (position < size) {
+                        position += part.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        } finally {
+            deleteParts(jobs);
+        }
+    }
+
+    private static void deleteParts(List<Job> jobs) throws IOException {
+        for (Job job : jobs) {
+            if (job.part != null) {
+                Files.deleteIfExists(job.part);
+            }
+        }
+    }
+
+    private static Job join(Future<Job> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof RuntimeException && cause.getCause() != null) {
+                cause = cause.getCause(); // the pool wraps checked exceptions of a Callable
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static Job convertFile(Job job, String flavor, int sampleRows) throws IOException {
+        // Pass 1: header and type sample
+        List<String> headers;
+        List<ColumnType> types = new ArrayList<>();
+        try (BufferedReader reader = open(job.filename)) {
+            CsvLoader.RecordReader records = new CsvLoader.RecordReader(reader);
+            String header = records.next();
+            if (header == null) {
+                throw new IOException(job.filename + " is empty");
+            }
+            headers = columnNames(CsvLoader.splitRecord(stripBom(header)));
+            for (int i = 0; i < headers.size(); i++) {
+                types.add(new ColumnType());
+            }
+
+            int sampled = 0;
+            String record;
+            while (sampled < sampleRows && (record = records.next()) != null) {
+                if (record.trim().isEmpty()) {
+                    continue;
+                }
+                sampled++;
+                List<String> fields = CsvLoader.splitRecord(record);
+                if (fields.size() != headers.size()) {
+                    continue; // like index.html, ragged rows do not vote
+                }
+                for (int i = 0; i < fields.size(); i++) {
+                    String value = fields.get(i).trim();
+                    if (!value.isEmpty()) {
+                        types.get(i).sample(value);
+                    }
+                }
+            }
+        }
+        job.columns = headers.size();
+
+        String[] sampledTypes = new String[types.size()];
+        for (int i = 0; i < types.size(); i++) {
+            sampledTypes[i] = types.get(i).sqlType(flavor);
+        }
+
+        // Pass 2: stream every row into the part file, widening types as needed
+        try (BufferedReader reader = open(job.filename);
+             FileChannel channel = FileChannel.open(job.part, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), OUTPUT_BUFFER_CHARS), OUTPUT_BUFFER_CHARS)) {
+
+            out.write("-- Data for " + job.table + "\n");
+
+            String insert = "INSERT INTO " + job.table + " (" + String.join(", ", headers) + ") VALUES\n";
+            CsvLoader.RecordReader records = new CsvLoader.RecordReader(reader);
+            records.next(); // header
+            int inBlock = 0;
+            String record;
+            while ((record = records.next()) != null) {
+                if (record.trim().isEmpty()) {
+                    continue;
+                }
+                List<String> fields = CsvLoader.splitRecord(record);
+                if (sampleTuple(fields, types) && inBlock > 0) {
+                    // A column just stopped being numeric: its earlier values in this block were
+                    // written bare, and one VALUES list with 10 and 'abc' would be typed INT
+                    out.write(";\n");
+                    inBlock = 0;
+                }
+                out.write(inBlock == 0 ? insert : ",\n");
+                writeTuple(out, fields, types);
+                job.rows++;
+                if (++inBlock == ROWS_PER_INSERT) {
+                    out.write(";\n");
+                    inBlock = 0;
+                }
+            }
+            if (inBlock > 0) {
+                out.write(";\n");
+            }
+            out.write("\n");
+        }
+
+        // Written in front of the part when the files are joined
+        StringBuilder schema = new StringBuilder();
+        schema.append("-- Schema for ").append(job.table).append("\n");
+        schema.append("CREATE TABLE ").append(job.table).append(" (\n");
+        for (int i = 0; i < headers.size(); i++) {
+            String type = types.get(i).sqlType(flavor);
+            schema.append("    ").append(headers.get(i)).append(" ").append(type).append(i + 1 < headers.size() ? ",\n" : "\n");
+            if (!type.equals(sampledTypes[i])) {
+                job.widened.add(headers.get(i) + " (" + sampledTypes[i] + " -> " + type + ")");
+            }
+        }
+        schema.append(");\n\n");
+        job.schema = schema.toString();
+        return job;
+    }
+
+    // Every value goes through sample(), so a column stays numeric only while all of its values
+    // are numbers. Returns true if a column was numeric before this row and is not any more.
+    private static boolean sampleTuple(List<String> fields, List<ColumnType> types) {
+        boolean stoppedNumeric = false;
+        for (int i = 0; i < types.size() && i < fields.size(); i++) {
+            String value = fields.get(i).trim();
+            if (!value.isEmpty()) {
+                ColumnType type = types.get(i);
+                boolean wasNumeric = type.numeric();
+                type.sample(value);
+                stoppedNumeric |= wasNumeric && !type.numeric();
+            }
+        }
+        return stoppedNumeric;
+    }
+
+    // "(1, 'a''b', NULL)"; short rows are padded with NULL and long rows cut, as in index.html.
+    // Values of a numeric column are written bare, all others quoted (see sampleTuple).
+    private static void writeTuple(Writer out, List<String> fields, List<ColumnType> types) throws IOException {
+        out.write('(');
+        for (int i = 0; i < types.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            String value = i < fields.size() ? fields.get(i).trim() : "";
+            if (value.isEmpty()) {
+                out.write("NULL");
+                continue;
+            }
+            if (types.get(i).numeric()) {
+                out.write(value);
+            } else {
+                out.write('\'');
+                out.write(value.replace("'", "''"));
+                out.write('\'');
+            }
+        }
+        out.write(')');
+    }
+
+    private static BufferedReader open(String filename) throws IOException {
+        return new BufferedReader(new InputStreamReader(SqlDump.openInput(filename), StandardCharsets.UTF_8));
+    }
+
+    private static String stripBom(String header) {
+        return header.startsWith("\uFEFF") ? header.substring(1) : header;
+    }
+
+    // --- Same clean-up as index.html: [^A-Za-z0-9_] -> _, blank -> col, leading digit -> col_ ---
+    private static List<String> columnNames(List<String> header) {
+        List<String> names = new ArrayList<>();
+        for (String field : header) {
+            String name = field.trim().replaceAll("[^a-zA-Z0-9_]", "_");
+            if (name.isEmpty()) {
+                name = "col";
+            }
+            if (Character.isDigit(name.charAt(0))) {
+                name = "col_" + name;
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    // "Final Player.csv.gz" -> Final_Player
+    private static String tableName(String name) {
+        String base = name.replaceFirst("(?i)\\.gz$", "").replaceFirst("(?i)\\.csv$", "");
+        String table = base.replaceAll("[^a-zA-Z0-9_]", "_");
+        return table.isEmpty() ? "my_table" : table;
+    }
+
+    private static boolean parsesAsDate(String value) {
+        for (DateTimeFormatter format : DATE_TIMES) {
+            try {
+                LocalDateTime.parse(value, format);
+                return true;
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        for (DateTimeFormatter format : DATES) {
+            try {
+                LocalDate.parse(value, format);
+                return true;
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return false;
+    }
+}
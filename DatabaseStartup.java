@@ -0,0 +1,175 @@
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Connects to the database and loads the data on a background thread so the
+ * prompt is usable immediately.
+ *
+ * Commands receive lazyConnection(), a Connection that only waits for startup
+ * the first time a JDBC method is called on it. Commands that never touch the
+ * database (help, snapshot and cache-backed commands, warmed query results) run
+ * at once; the others show a progress line until the database is ready.
+ */
+public class DatabaseStartup {
+
+    // How often the waiting progress line is refreshed
+    private static final long PROGRESS_MS = 250;
+    private static final String SPINNER = "|/-\\";
+
+    // --- Runs on the startup thread once connected; reports progress through the consumer ---
+    public interface Loader {
+        void load(Connection connection, Consumer<String> progress);
+    }
+
+    private final CompletableFuture<Connection> ready = new CompletableFuture<>();
+    private final long started = System.nanoTime();
+    private volatile String stage = "starting";
+
+    private DatabaseStartup() {
+    }
+
+    public static DatabaseStartup start(String connectionUrl, Loader loader) {
+        DatabaseStartup startup = new DatabaseStartup();
+        Thread thread = new Thread(() -> startup.run(connectionUrl, loader), "startup");
+        thread.setDaemon(true); // never keeps the JVM alive after 'quit'
+        thread.start();
+        return startup;
+    }
+
+    // Everything this thread prints goes through ConsoleWriter, shown at the next prompt
+    private void run(String connectionUrl, Loader loader) {
+        Connection connection = null;
+        try {
+            stage = "connecting";
+            connection = DriverManager.getConnection(connectionUrl);
+            ConsoleWriter.post(String.format("✅ Connected to the database in %.1f s", elapsedSeconds()));
+
+            stage = "loading data";
+            loader.load(connection, detail -> stage = detail); // reports its own errors, as before
+            stage = "ready";
+            ConsoleWriter.post(String.format("✅ Database ready after %.1f s", elapsedSeconds()));
+            ready.complete(connection);
+        } catch (SQLException e) {
+            ConsoleWriter.postError("❌ Database connection error: " + e.getMessage());
+            ConsoleWriter.postError("Commands that use local data still work; database commands will report this error.");
+            fail(connection, e);
+        } catch (Throwable e) {
+            // Errors too (e.g. OutOfMemoryError on a large dump): a waiting command must never spin forever
+            ConsoleWriter.postError("❌ An unexpected error occurred during startup: " + describe(e));
+            fail(connection, e);
+        }
+    }
+
+    private void fail(Connection connection, Throwable cause) {
+        stage = "unavailable (" + describe(cause) + ")";
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // already failing; the original cause is what gets reported
+            }
+        }
+        ready.completeExceptionally(cause);
+    }
+
+    private static String describe(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    public boolean hasFailed() {
+        return ready.isCompletedExceptionally();
+    }
+
+    public String status() {
+        return String.format("%s (%.1f s since start)", stage, elapsedSeconds());
+    }
+
+    // Run once the data is loaded (never, if the connection fails)
+    public void onReady(Runnable action) {
+        ready.thenRun(action);
+    }
+
+    // --- The live connection, waiting for startup (with a progress line) if needed ---
+    public Connection await() throws SQLException {
+        if (!ready.isDone()) {
+            int tick = 0;
+            while (!ready.isDone()) {
+                if (ConsoleWriter.hasPending()) {
+                    if (tick > 0) {
+                        System.out.println(); // end the progress line; messages go below it
+                    }
+                    ConsoleWriter.flush();
+                }
+                System.out.printf("\r-> Waiting for the database: %s %c   ", status(), SPINNER.charAt(tick++ % SPINNER.length()));
+                try {
+                    ready.get(PROGRESS_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // keep waiting
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for the database.", e);
+                } catch (ExecutionException e) {
+                    break; // reported below
+                }
+            }
+            System.out.println();
+            ConsoleWriter.flush();
+        }
+        try {
+            return ready.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database.", e);
+        } catch (ExecutionException e) {
+            throw new SQLException("Database unavailable: " + describe(e.getCause()), e.getCause());
+        }
+    }
+
+    // --- A Connection that resolves to await() on first use ---
+    public Connection lazyConnection() {
+        return (Connection) Proxy.newProxyInstance(DatabaseStartup.class.getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "toString":
+                        return "Connection (" + status() + ")";
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        try {
+                            return method.invoke(await(), args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            });
+    }
+
+    // Close the connection if startup got that far
+    public void close() {
+        if (isReady()) {
+            try {
+                ready.join().close();
+            } catch (SQLException e) {
+                System.err.println("Error closing connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private double elapsedSeconds() {
+        return (System.nanoTime() - started) / 1e9;
+    }
+}
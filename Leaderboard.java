@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Top-K ranking of any numeric column or metric of a snapshot table, per season
+ * and across all requested seasons.
+ *
+ * The table is split into row ranges that are scanned in parallel on the common
+ * fork-join pool. Each range keeps one bounded min-heap of size K per season (plus
+ * one overall), so memory stays O(K * seasons) however many rows are scanned, and
+ * partial heaps are merged as the tasks join.
+ */
+public class Leaderboard {
+
+    // Ranges are sized so each pool thread gets a few of them (the stat tables have
+    // 30 to 6,000 rows), but never smaller than this: tinier ranges cost more to fork than to scan
+    private static final int MIN_ROWS_PER_TASK = 256;
+    private static final int TASKS_PER_THREAD = 4;
+
+    public static class Entry {
+        final int row;
+        final int season;
+        final double value;
+
+        Entry(int row, int season, double value) {
+            this.row = row;
+            this.season = season;
+            this.value = value;
+        }
+    }
+
+    // Highest value first; ties go to the earlier row so results are stable
+    private static final Comparator<Entry> RANKING =
+        Comparator.comparingDouble((Entry e) -> e.value).reversed().thenComparingInt(e -> e.row);
+
+    // --- Bounded heap keeping the K best entries seen so far ---
+    public static class TopK {
+        private final int k;
+        private final PriorityQueue<Entry> heap; // worst kept entry at the head
+
+        TopK(int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<>(k + 1, RANKING.reversed());
+        }
+
+        void offer(Entry entry) {
+            if (heap.size() < k) {
+                heap.add(entry);
+            } else if (RANKING.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        void merge(TopK other) {
+            for (Entry entry : other.heap) {
+                offer(entry);
+            }
+        }
+
+        // Best first
+        public List<Entry> ranked() {
+            List<Entry> entries = new ArrayList<>(heap);
+            entries.sort(RANKING);
+            return entries;
+        }
+    }
+
+    public static class Result {
+        final Map<Integer, TopK> bySeason = new TreeMap<>();
+        final TopK overall;
+
+        Result(int k) {
+            this.overall = new TopK(k);
+        }
+
+        void merge(Result other) {
+            for (Map.Entry<Integer, TopK> season : other.bySeason.entrySet()) {
+                TopK mine = bySeason.get(season.getKey());
+                if (mine == null) {
+                    bySeason.put(season.getKey(), season.getValue());
+                } else {
+                    mine.merge(season.getValue());
+                }
+            }
+            overall.merge(other.overall);
+        }
+    }
+
+    /**
+     * Rank rows of the table by value. Rows whose season is not in seasons
+     * (null means every season) or whose value is NaN (NULL) are skipped.
+     */
+    public static Result compute(Snapshot.Table table, Metric.RowMetric value, Set<Integer> seasons, int k) {
+        int seasonCol = table.columnIndex("season");
+        if (seasonCol < 0) {
+            throw new IllegalArgumentException("Table " + table.name + " has no season column");
+        }
+        if (k < 1) {
+            throw new IllegalArgumentException("K must be at least 1");
+        }
+        int rowsPerTask = Math.max(MIN_ROWS_PER_TASK, table.rowCount / (ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_THREAD));
+        return ForkJoinPool.commonPool().invoke(new ScanTask(table, value, seasonCol, seasons, k, rowsPerTask, 0, table.rowCount));
+    }
+
+    private static class ScanTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final Snapshot.Table table;
+        private final Metric.RowMetric value;
+        private final int seasonCol;
+        private final Set<Integer> seasons;
+        private final int k;
+        private final int rowsPerTask;
+        private final int from;
+        private final int to;
+
+        ScanTask(Snapshot.Table table, Metric.RowMetric value, int seasonCol, Set<Integer> seasons, int k, int rowsPerTask, int from, int to) {
+            this.table = table;
+            this.value = value;
+            this.seasonCol = seasonCol;
+            this.seasons = seasons;
+            this.k = k;
+            this.rowsPerTask = rowsPerTask;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from > rowsPerTask) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(table, value, seasonCol, seasons, k, rowsPerTask, from, middle);
+                left.fork();
+                Result result = new ScanTask(table, value, seasonCol, seasons, k, rowsPerTask, middle, to).compute();
+                result.merge(left.join());
+                return result;
+            }
+
+            Result result = new Result(k);
+            for (int row = from; row < to; row++) {
+                if (table.isNull(row, seasonCol)) {
+                    continue;
+                }
+                int season = table.getInt(row, seasonCol);
+                if (seasons != null && !seasons.contains(season)) {
+                    continue;
+                }
+                double v = value.eval(row);
+                if (Double.isNaN(v)) {
+                    continue;
+                }
+                Entry entry = new Entry(row, season, v);
+                result.bySeason.computeIfAbsent(season, s -> new TopK(k)).offer(entry);
+                result.overall.offer(entry);
+            }
+            return result;
+        }
+    }
+}
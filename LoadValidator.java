@@ -0,0 +1,312 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Cleans a parsed dump before anything is sent to the database.
+ *
+ * Pass 1 checks every table on its own, all tables in parallel: tuples with the
+ * wrong number of values, numbers that do not parse, NULL or repeated primary
+ * keys, and exact duplicate rows. Pass 2 checks REFERENCES columns against the
+ * key sets of the referenced tables (team, player, game, ...), level by level so
+ * a parent is final before its children are checked; tables on the same level
+ * run in parallel. A NULL in a REFERENCES column is rejected too, since such a
+ * row (e.g. roaster's (2024, 'NO', NULL)) cannot join to anything.
+ *
+ * Rejected rows are removed from the dump and written to a quarantine file as
+ * INSERT statements, each preceded by the reason, so they can be fixed and
+ * re-run by hand.
+ */
+public class LoadValidator {
+
+    public static final String QUARANTINE_FILE = "quarantine.sql";
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    // Whole numbers, to tell "too large for INT" from "not a number"
+    private static final Pattern INTEGER = Pattern.compile("[-+]?\\d+");
+
+    private static class Reject {
+        final String reason;
+        final List<String> columns; // order of values: the table's, or the source INSERT's
+        final List<String> values;
+
+        Reject(String reason, List<String> columns, List<String> values) {
+            this.reason = reason;
+            this.columns = columns;
+            this.values = values;
+        }
+    }
+
+    // --- Per-table outcome ---
+    public static class Report {
+        // Table -> {rows kept, duplicates dropped, rows rejected}
+        final Map<String, int[]> counts = new LinkedHashMap<>();
+
+        public int kept() {
+            return counts.values().stream().mapToInt(c -> c[0]).sum();
+        }
+
+        public int duplicates() {
+            return counts.values().stream().mapToInt(c -> c[1]).sum();
+        }
+
+        public int rejected() {
+            return counts.values().stream().mapToInt(c -> c[2]).sum();
+        }
+    }
+
+    /**
+     * Validate every table of the dump in place. Rejects are written to
+     * quarantineFile (replacing an older one) unless it is null.
+     */
+    public static Report validate(SqlDump dump, String quarantineFile) throws IOException {
+        Map<String, List<Reject>> rejects = new ConcurrentHashMap<>();
+        Map<String, Integer> duplicates = new ConcurrentHashMap<>();
+        for (String name : dump.tables.keySet()) {
+            rejects.put(name, Collections.synchronizedList(new ArrayList<>()));
+        }
+
+        // Pass 1: each table on its own
+        dump.tables.values().parallelStream().forEach(table ->
+            duplicates.put(table.name, checkRows(table, rejects.get(table.name))));
+
+        // Pass 2: references, parents before children
+        Map<String, Set<String>> keySets = new ConcurrentHashMap<>();
+        Set<String> done = new HashSet<>();
+        while (done.size() < dump.tables.size()) {
+            List<SqlDump.Table> level = dump.tables.values().stream()
+                .filter(t -> !done.contains(t.name))
+                .filter(t -> t.references.values().stream()
+                    .allMatch(target -> target[0].equals(t.name) || done.contains(target[0]) || dump.table(target[0]) == null))
+                .collect(Collectors.toList());
+            if (level.isEmpty()) {
+                throw new IllegalStateException("Circular REFERENCES between tables " + dump.tables.keySet());
+            }
+            level.parallelStream().forEach(table -> {
+                checkReferences(table, dump, keySets, rejects.get(table.name));
+                for (String[] target : referencedColumns(dump, table.name)) {
+                    keySets.put(target[0] + "." + target[1], keySet(table, table.columnIndex(target[1])));
+                }
+            });
+            for (SqlDump.Table table : level) {
+                done.add(table.name);
+            }
+        }
+
+        Report report = new Report();
+        for (SqlDump.Table table : dump.tables.values()) {
+            int dropped = duplicates.get(table.name);
+            report.counts.put(table.name, new int[] {table.rows.size(), dropped, rejects.get(table.name).size() - dropped});
+        }
+        if (quarantineFile != null) {
+            writeQuarantine(dump, rejects, report, quarantineFile);
+        }
+        return report;
+    }
+
+    // --- Pass 1 for one table; returns the number of exact duplicates dropped ---
+    private static int checkRows(SqlDump.Table table, List<Reject> rejects) {
+        for (SqlDump.Malformed tuple : table.malformed) {
+            rejects.add(new Reject("expected " + tuple.columns.size() + " values, found " + tuple.values.size(), tuple.columns, tuple.values));
+        }
+        table.malformed.clear();
+
+        List<String[]> clean = new ArrayList<>(table.rows.size());
+        Set<List<String>> seenRows = new HashSet<>();
+        Map<String, String[]> seenKeys = new HashMap<>();
+        int dropped = 0;
+        for (String[] row : table.rows) {
+            List<String> values = Arrays.asList(row);
+            String problem = typeProblem(table, row);
+            if (problem != null) {
+                rejects.add(new Reject(problem, table.columns, values));
+                continue;
+            }
+            if (!seenRows.add(values)) {
+                rejects.add(new Reject("duplicate row", table.columns, values));
+                dropped++;
+                continue;
+            }
+            if (table.primaryKey >= 0) {
+                String key = normalize(table, table.primaryKey, row[table.primaryKey]);
+                if (key == null) {
+                    rejects.add(new Reject("NULL primary key " + table.columns.get(table.primaryKey), table.columns, values));
+                    continue;
+                }
+                if (seenKeys.putIfAbsent(key, row) != null) {
+                    rejects.add(new Reject("duplicate primary key " + table.columns.get(table.primaryKey) + " = " + key, table.columns, values));
+                    continue;
+                }
+            }
+            clean.add(row);
+        }
+        table.rows.clear();
+        table.rows.addAll(clean);
+        return dropped;
+    }
+
+    private static String typeProblem(SqlDump.Table table, String[] row) {
+        for (int c = 0; c < row.length; c++) {
+            if (row[c] == null || table.types.get(c) == SqlDump.TYPE_STRING) {
+                continue;
+            }
+            try {
+                if (table.types.get(c) == SqlDump.TYPE_INT) {
+                    Integer.parseInt(row[c]); // same parse as the load and the snapshot, so 3000000000 is caught here
+                } else {
+                    new BigDecimal(row[c]);
+                }
+            } catch (NumberFormatException e) {
+                if (table.types.get(c) == SqlDump.TYPE_INT && INTEGER.matcher(row[c]).matches()) {
+                    return table.columns.get(c) + " '" + row[c] + "' does not fit in INT";
+                }
+                return table.columns.get(c) + " '" + row[c] + "' is not a number";
+            }
+        }
+        return null;
+    }
+
+    // --- Pass 2 for one table: every REFERENCES value must exist in its parent ---
+    private static void checkReferences(SqlDump.Table table, SqlDump dump, Map<String, Set<String>> keySets, List<Reject> rejects) {
+        if (table.references.isEmpty()) {
+            return;
+        }
+        // A table referencing itself is checked against its own keys
+        for (String[] target : table.references.values()) {
+            if (target[0].equals(table.name) && !keySets.containsKey(target[0] + "." + target[1])) {
+                keySets.put(target[0] + "." + target[1], keySet(table, table.columnIndex(target[1])));
+            }
+        }
+
+        List<String[]> clean = new ArrayList<>(table.rows.size());
+        for (String[] row : table.rows) {
+            String problem = null;
+            for (Map.Entry<Integer, String[]> reference : table.references.entrySet()) {
+                int c = reference.getKey();
+                String[] target = reference.getValue();
+                if (dump.table(target[0]) == null) {
+                    continue; // parent not in this dump; leave it to the database
+                }
+                String value = normalize(table, c, row[c]);
+                if (value == null) {
+                    problem = "NULL " + table.columns.get(c) + " (references " + target[0] + ")";
+                    break;
+                }
+                if (!keySets.get(target[0] + "." + target[1]).contains(value)) {
+                    problem = table.columns.get(c) + " '" + value + "' not in " + target[0] + "(" + target[1] + ")";
+                    break;
+                }
+            }
+            if (problem == null) {
+                clean.add(row);
+            } else {
+                rejects.add(new Reject(problem, table.columns, Arrays.asList(row)));
+            }
+        }
+        table.rows.clear();
+        table.rows.addAll(clean);
+    }
+
+    // {table, column} pairs of the given table that some table references
+    private static List<String[]> referencedColumns(SqlDump dump, String name) {
+        List<String[]> columns = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (SqlDump.Table table : dump.tables.values()) {
+            for (String[] target : table.references.values()) {
+                if (target[0].equals(name) && seen.add(target[1])) {
+                    columns.add(target);
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static Set<String> keySet(SqlDump.Table table, int column) {
+        Set<String> keys = new HashSet<>(table.rows.size() * 2);
+        if (column < 0) {
+            return keys;
+        }
+        for (String[] row : table.rows) {
+            String key = normalize(table, column, row[column]);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    // Integers compare by value ('07' = '7'); everything else as written
+    private static String normalize(SqlDump.Table table, int column, String value) {
+        if (value == null) {
+            return null;
+        }
+        if (table.types.get(column) == SqlDump.TYPE_INT) {
+            return String.valueOf(Integer.parseInt(value.trim()));
+        }
+        return value;
+    }
+
+    // --- Quarantine file: "-- reason" + INSERT per rejected row, grouped by table ---
+    private static void writeQuarantine(SqlDump dump, Map<String, List<Reject>> rejects, Report report, String filename) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+            out.write("-- Rows rejected while validating the dump, " + LocalDateTime.now().format(TIMESTAMP));
+            out.newLine();
+            out.write("-- " + report.rejected() + " rejected, " + report.duplicates() + " duplicates dropped");
+            out.newLine();
+            for (SqlDump.Table table : dump.tables.values()) {
+                List<Reject> tableRejects = rejects.get(table.name);
+                if (tableRejects.isEmpty()) {
+                    continue;
+                }
+                out.newLine();
+                out.write("-- " + table.name);
+                out.newLine();
+                for (Reject reject : tableRejects) {
+                    out.write("-- " + reject.reason);
+                    out.newLine();
+                    out.write("INSERT INTO " + table.name + " (" + String.join(", ", reject.columns) + ") VALUES "
+                        + literal(table, reject.columns, reject.values) + ";");
+                    out.newLine();
+                }
+            }
+        }
+    }
+
+    // Numbers stay bare only in numeric columns; values are typed by the column they were written for
+    private static String literal(SqlDump.Table table, List<String> columns, List<String> values) {
+        StringBuilder tuple = new StringBuilder("(");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                tuple.append(", ");
+            }
+            String value = values.get(i);
+            int column = i < columns.size() ? table.columnIndex(columns.get(i)) : -1;
+            boolean numeric = column >= 0 && table.types.get(column) != SqlDump.TYPE_STRING;
+            if (value == null) {
+                tuple.append("NULL");
+            } else if (numeric && value.matches("-?[0-9]+(\\.[0-9]+)?")) {
+                tuple.append(value);
+            } else {
+                tuple.append('\'').append(value.replace("'", "''")).append('\'');
+            }
+        }
+        return tuple.append(')').toString();
+    }
+}
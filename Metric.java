@@ -0,0 +1,304 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+
+/**
+ * A named, user-defined stat such as
+ *
+ *   total_tds = passing_tds + receiving_tds + rushing_tds + special_teams_tds
+ *
+ * Expressions use column names of reg_player_stat / post_player_stat, numbers,
+ * earlier metric names, + - * / and parentheses. Each definition is parsed once;
+ * the tree can then be turned into a SQL fragment or compiled into a RowMetric
+ * lambda that reads snapshot columns directly.
+ *
+ * NULL columns and division by zero give NULL in SQL and NaN in a RowMetric.
+ */
+public class Metric {
+
+    public static final String DEFAULT_FILE = "metrics.cfg";
+
+    // --- Compiled form: value of the metric for one row of a snapshot table ---
+    public interface RowMetric {
+        double eval(int row);
+    }
+
+    private interface Node {
+        String sql(String alias);
+        RowMetric compile(Snapshot.Table table);
+        void columns(Set<String> out);
+    }
+
+    final String name;
+    final String expression;
+    private final Node root;
+
+    private Metric(String name, String expression, Node root) {
+        this.name = name;
+        this.expression = expression;
+        this.root = root;
+    }
+
+    // A plain column treated as a metric (same NULL handling as expressions)
+    public static Metric ofColumn(String column) {
+        String name = column.toLowerCase(Locale.ROOT);
+        return new Metric(name, name, column(name));
+    }
+
+    // SQL fragment over the stat table alias, e.g. "(s.[passing_tds] + s.[rushing_tds])"
+    public String toSql(String alias) {
+        return root.sql(alias);
+    }
+
+    // The name as a result column, bracket-quoted so names like 'rank' or 'order' stay valid SQL
+    public String sqlName() {
+        return "[" + name + "]";
+    }
+
+    public RowMetric compile(Snapshot.Table table) {
+        for (String column : columns()) {
+            if (table.columnIndex(column) < 0) {
+                String usedBy = column.equals(expression) ? "" : " used by metric '" + name + "'";
+                throw new IllegalArgumentException("Column '" + column + "'" + usedBy + " does not exist in " + table.name);
+            }
+        }
+        return root.compile(table);
+    }
+
+    public Set<String> columns() {
+        Set<String> columns = new LinkedHashSet<>();
+        root.columns(columns);
+        return columns;
+    }
+
+    // --- Load "name = expression" lines; '#' starts a comment. Bad lines are reported and skipped. ---
+    public static Map<String, Metric> load(String filename) throws IOException {
+        File file = new File(filename);
+        if (!file.exists()) {
+            throw new FileNotFoundException("File not found: " + filename);
+        }
+
+        Map<String, Metric> metrics = new LinkedHashMap<>();
+        try (Scanner scanner = new Scanner(file, "UTF-8")) {
+            int lineNumber = 0;
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    Metric metric = parse(line, metrics);
+                    metrics.put(metric.name, metric);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("⚠️ Warning: " + filename + " line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return metrics;
+    }
+
+    // --- Parse one definition; earlier metrics can be referenced by name ---
+    public static Metric parse(String definition, Map<String, Metric> known) {
+        int equals = definition.indexOf('=');
+        if (equals < 0) {
+            throw new IllegalArgumentException("Expected 'name = expression'");
+        }
+        String name = definition.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+        if (!name.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid metric name '" + name + "'");
+        }
+        String expression = definition.substring(equals + 1).trim();
+        Parser parser = new Parser(expression, known);
+        Node root = parser.parseExpression();
+        parser.expectEnd();
+        return new Metric(name, expression, root);
+    }
+
+    // --- Recursive descent: expression := term (('+'|'-') term)*, term := factor (('*'|'/') factor)* ---
+    private static class Parser {
+        private final String text;
+        private final Map<String, Metric> known;
+        private int pos = 0;
+
+        Parser(String text, Map<String, Metric> known) {
+            this.text = text;
+            this.known = known;
+        }
+
+        Node parseExpression() {
+            Node node = parseTerm();
+            while (true) {
+                char op = peek();
+                if (op != '+' && op != '-') {
+                    return node;
+                }
+                pos++;
+                node = binary(op, node, parseTerm());
+            }
+        }
+
+        private Node parseTerm() {
+            Node node = parseFactor();
+            while (true) {
+                char op = peek();
+                if (op != '*' && op != '/') {
+                    return node;
+                }
+                pos++;
+                node = binary(op, node, parseFactor());
+            }
+        }
+
+        private Node parseFactor() {
+            char c = peek();
+            if (c == '-') {
+                pos++;
+                return negate(parseFactor());
+            }
+            if (c == '(') {
+                pos++;
+                Node inner = parseExpression();
+                if (peek() != ')') {
+                    throw error("Expected ')'");
+                }
+                pos++;
+                return inner;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                int start = pos;
+                while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                    pos++;
+                }
+                try {
+                    return number(text.substring(start, pos));
+                } catch (NumberFormatException e) {
+                    throw error("Invalid number '" + text.substring(start, pos) + "'");
+                }
+            }
+            if (Character.isLetter(c) || c == '_') {
+                int start = pos;
+                while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                    pos++;
+                }
+                String identifier = text.substring(start, pos).toLowerCase(Locale.ROOT);
+                Metric metric = known.get(identifier);
+                return metric != null ? metric.root : column(identifier);
+            }
+            throw error(c == 0 ? "Unexpected end of expression" : "Unexpected '" + c + "'");
+        }
+
+        void expectEnd() {
+            if (peek() != 0) {
+                throw error("Unexpected '" + peek() + "'");
+            }
+        }
+
+        // Next non-blank character, or 0 at the end
+        private char peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + (pos + 1) + " in '" + text + "'");
+        }
+    }
+
+    // --- Tree nodes. Each compiles to a small, monomorphic lambda the JIT can inline. ---
+
+    private static Node number(String literal) {
+        double value = Double.parseDouble(literal);
+        return new Node() {
+            public String sql(String alias) {
+                return literal;
+            }
+            public RowMetric compile(Snapshot.Table table) {
+                return row -> value;
+            }
+            public void columns(Set<String> out) {
+            }
+        };
+    }
+
+    private static Node column(String name) {
+        return new Node() {
+            public String sql(String alias) {
+                return alias + ".[" + name + "]";
+            }
+            public RowMetric compile(Snapshot.Table table) {
+                int col = table.columnIndex(name);
+                if (table.types[col] == SqlDump.TYPE_STRING) {
+                    throw new IllegalArgumentException("Column '" + name + "' is not numeric");
+                }
+                if (table.types[col] == SqlDump.TYPE_INT) {
+                    return row -> table.isNull(row, col) ? Double.NaN : table.getInt(row, col);
+                }
+                return row -> table.isNull(row, col) ? Double.NaN : table.getDouble(row, col);
+            }
+            public void columns(Set<String> out) {
+                out.add(name);
+            }
+        };
+    }
+
+    private static Node negate(Node operand) {
+        return new Node() {
+            public String sql(String alias) {
+                return "(-" + operand.sql(alias) + ")";
+            }
+            public RowMetric compile(Snapshot.Table table) {
+                RowMetric value = operand.compile(table);
+                return row -> -value.eval(row);
+            }
+            public void columns(Set<String> out) {
+                operand.columns(out);
+            }
+        };
+    }
+
+    private static Node binary(char op, Node left, Node right) {
+        return new Node() {
+            public String sql(String alias) {
+                if (op == '/') {
+                    // FLOAT avoids SQL Server integer division; NULLIF turns x / 0 into NULL
+                    return "(CAST(" + left.sql(alias) + " AS FLOAT) / NULLIF(" + right.sql(alias) + ", 0))";
+                }
+                return "(" + left.sql(alias) + " " + op + " " + right.sql(alias) + ")";
+            }
+            public RowMetric compile(Snapshot.Table table) {
+                RowMetric l = left.compile(table);
+                RowMetric r = right.compile(table);
+                switch (op) {
+                    case '+':
+                        return row -> l.eval(row) + r.eval(row);
+                    case '-':
+                        return row -> l.eval(row) - r.eval(row);
+                    case '*':
+                        return row -> l.eval(row) * r.eval(row);
+                    default:
+                        return row -> {
+                            double divisor = r.eval(row);
+                            return divisor == 0 ? Double.NaN : l.eval(row) / divisor;
+                        };
+                }
+            }
+            public void columns(Set<String> out) {
+                left.columns(out);
+                right.columns(out);
+            }
+        };
+    }
+}
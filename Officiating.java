@@ -0,0 +1,210 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Referee x team x season counts for officiating questions, built from the
+ * validated dump the database was just loaded from, in one pass over
+ * official, game and reg_team_stat.
+ *
+ * The counts live in one flat int array indexed [ref][team][season][metric], so
+ * every question (a referee's away wins in a season, the referees a team saw
+ * most, win splits per referee) is a short loop over primitives with no joins.
+ * Penalties are only recorded per team and season in reg_team_stat, so they are
+ * kept in a separate [team][season] array rather than split across referees.
+ * Away wins are also kept per [ref][season], so games whose away team is not
+ * in the team table still count, as they do in SQL.
+ *
+ * Built once per load and dropped by the caller as soon as anything else is
+ * written to the database; the ref_* commands run SQL while there is none.
+ */
+public class Officiating {
+
+    // --- Metrics per (ref, team, season), from the team's point of view ---
+    public static final int HOME_GAMES = 0;
+    public static final int HOME_WINS = 1;
+    public static final int HOME_LOSSES = 2;
+    public static final int AWAY_GAMES = 3;
+    public static final int AWAY_WINS = 4;
+    public static final int AWAY_LOSSES = 5;
+    static final int METRICS = 6;
+
+    // Penalty values when the team has no reg_team_stat row for the season, or a NULL count
+    public static final int NO_PENALTIES = -1;
+    public static final int NULL_PENALTIES = -2;
+
+    final int[] refIds;
+    final String[] refNames;
+    final String[] teams;
+    final int[] seasons;
+    private final int[] counts;
+    private final int[] awayWins;
+    private final int[] penalties;
+    private final Map<Integer, Integer> refIndex = new HashMap<>();
+    private final Map<String, Integer> teamIndex = new HashMap<>();
+
+    private Officiating(int[] refIds, String[] refNames, String[] teams, int[] seasons) {
+        this.refIds = refIds;
+        this.refNames = refNames;
+        this.teams = teams;
+        this.seasons = seasons;
+        this.counts = new int[refIds.length * teams.length * seasons.length * METRICS];
+        this.awayWins = new int[refIds.length * seasons.length];
+        this.penalties = new int[teams.length * seasons.length];
+        Arrays.fill(penalties, NO_PENALTIES);
+        for (int r = 0; r < refIds.length; r++) {
+            refIndex.put(refIds[r], r);
+        }
+        for (int t = 0; t < teams.length; t++) {
+            teamIndex.put(teams[t], t);
+        }
+    }
+
+    // --- Index lookups; -1 if unknown ---
+    public int refIndex(int officialId) {
+        return refIndex.getOrDefault(officialId, -1);
+    }
+
+    public int teamIndex(String abbr) {
+        return teamIndex.getOrDefault(abbr.toUpperCase(Locale.ROOT), -1);
+    }
+
+    public int seasonIndex(int season) {
+        int s = Arrays.binarySearch(seasons, season);
+        return s < 0 ? -1 : s;
+    }
+
+    public int count(int ref, int team, int season, int metric) {
+        return counts[((ref * teams.length + team) * seasons.length + season) * METRICS + metric];
+    }
+
+    public int games(int ref, int team, int season) {
+        return count(ref, team, season, HOME_GAMES) + count(ref, team, season, AWAY_GAMES);
+    }
+
+    public int wins(int ref, int team, int season) {
+        return count(ref, team, season, HOME_WINS) + count(ref, team, season, AWAY_WINS);
+    }
+
+    public int losses(int ref, int team, int season) {
+        return count(ref, team, season, HOME_LOSSES) + count(ref, team, season, AWAY_LOSSES);
+    }
+
+    // Games the referee worked in the season that the away team won, whatever the away team
+    public int awayWins(int ref, int season) {
+        return awayWins[ref * seasons.length + season];
+    }
+
+    public int penalties(int team, int season) {
+        return penalties[team * seasons.length + season];
+    }
+
+    // Null if the dump lacks one of the tables
+    public static Officiating build(SqlDump dump) {
+        SqlDump.Table refree = dump.table("refree");
+        SqlDump.Table team = dump.table("team");
+        SqlDump.Table game = dump.table("game");
+        SqlDump.Table official = dump.table("official");
+        SqlDump.Table teamStat = dump.table("reg_team_stat");
+        if (refree == null || team == null || game == null || official == null || teamStat == null) {
+            return null; // not the NFL schema; the ref_* commands use SQL
+        }
+
+        // Dimensions: referees and teams in table order, seasons sorted
+        int refIdCol = refree.columnIndex("official_id");
+        int refNameCol = refree.columnIndex("official_name");
+        int[] refIds = new int[refree.rows.size()];
+        String[] refNames = new String[refIds.length];
+        for (int row = 0; row < refIds.length; row++) {
+            String[] values = refree.rows.get(row);
+            refIds[row] = intValue(values[refIdCol]);
+            refNames[row] = values[refNameCol] == null ? "NULL" : values[refNameCol];
+        }
+        int abbrCol = team.columnIndex("team_abbr");
+        String[] teams = new String[team.rows.size()];
+        for (int row = 0; row < teams.length; row++) {
+            teams[row] = team.rows.get(row)[abbrCol].toUpperCase(Locale.ROOT);
+        }
+        int gameIdCol = game.columnIndex("game_id");
+        int gameSeasonCol = game.columnIndex("season");
+        int[] seasons = game.rows.stream()
+            .filter(values -> values[gameSeasonCol] != null)
+            .mapToInt(values -> intValue(values[gameSeasonCol]))
+            .distinct().sorted().toArray();
+
+        Officiating matrix = new Officiating(refIds, refNames, teams, seasons);
+
+        // game_id -> game row
+        Map<Integer, String[]> games = new HashMap<>(game.rows.size() * 2);
+        for (String[] values : game.rows) {
+            games.put(intValue(values[gameIdCol]), values);
+        }
+
+        int awayCol = game.columnIndex("away_team");
+        int homeCol = game.columnIndex("home_team");
+        int awayScoreCol = game.columnIndex("away_score");
+        int homeScoreCol = game.columnIndex("home_score");
+        int officialRefCol = official.columnIndex("official_id");
+        int officialGameCol = official.columnIndex("game_id");
+        for (String[] values : official.rows) {
+            if (values[officialRefCol] == null || values[officialGameCol] == null) {
+                continue;
+            }
+            int r = matrix.refIndex(intValue(values[officialRefCol]));
+            String[] g = games.get(intValue(values[officialGameCol]));
+            if (r < 0 || g == null || g[gameSeasonCol] == null) {
+                continue;
+            }
+            int s = matrix.seasonIndex(intValue(g[gameSeasonCol]));
+            int away = g[awayCol] == null ? -1 : matrix.teamIndex(g[awayCol]);
+            int home = g[homeCol] == null ? -1 : matrix.teamIndex(g[homeCol]);
+            boolean scored = g[awayScoreCol] != null && g[homeScoreCol] != null;
+            int margin = scored ? intValue(g[homeScoreCol]) - intValue(g[awayScoreCol]) : 0;
+
+            if (margin < 0) {
+                matrix.awayWins[r * seasons.length + s]++;
+            }
+            if (home >= 0) {
+                matrix.add(r, home, s, HOME_GAMES);
+                if (margin > 0) {
+                    matrix.add(r, home, s, HOME_WINS);
+                } else if (margin < 0) {
+                    matrix.add(r, home, s, HOME_LOSSES);
+                }
+            }
+            if (away >= 0) {
+                matrix.add(r, away, s, AWAY_GAMES);
+                if (margin < 0) {
+                    matrix.add(r, away, s, AWAY_WINS);
+                } else if (margin > 0) {
+                    matrix.add(r, away, s, AWAY_LOSSES);
+                }
+            }
+        }
+
+        int statTeamCol = teamStat.columnIndex("team");
+        int statSeasonCol = teamStat.columnIndex("season");
+        int penaltiesCol = teamStat.columnIndex("penalties");
+        for (String[] values : teamStat.rows) {
+            if (values[statTeamCol] == null || values[statSeasonCol] == null) {
+                continue;
+            }
+            int t = matrix.teamIndex(values[statTeamCol]);
+            int s = matrix.seasonIndex(intValue(values[statSeasonCol]));
+            if (t >= 0 && s >= 0) {
+                matrix.penalties[t * seasons.length + s] = values[penaltiesCol] == null ? NULL_PENALTIES : intValue(values[penaltiesCol]);
+            }
+        }
+        return matrix;
+    }
+
+    // Values are already validated as INT by LoadValidator
+    private static int intValue(String raw) {
+        return Integer.parseInt(raw.trim());
+    }
+
+    private void add(int ref, int team, int season, int metric) {
+        counts[((ref * teams.length + team) * seasons.length + season) * METRICS + metric]++;
+    }
+}
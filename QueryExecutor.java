@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs one statement at a time on a worker thread so that the console stays
+ * responsive while a query executes and its rows are printed.
+ *
+ * Every statement gets a query timeout (DEFAULT_TIMEOUT_SECONDS unless changed).
+ * While it runs, Ctrl-C or typing 'cancel' calls Statement.cancel(); the driver
+ * then aborts the query on the server and the connection, together with all
+ * local caches, stays usable. Ctrl-C with no query running exits as before.
+ */
+public class QueryExecutor {
+
+    public static final int DEFAULT_TIMEOUT_SECONDS = 60;
+
+    // How often the waiting console thread checks for a typed 'cancel'
+    private static final long POLL_MS = 50;
+
+    // --- Work done on the worker: execute the statement, print and return its rows ---
+    public interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    // Thrown instead of the driver's error when the user cancelled the query
+    public static class CancelledException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        CancelledException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "query");
+        thread.setDaemon(true); // never keeps the JVM alive after 'quit'
+        return thread;
+    });
+    private final Scanner console;
+    private volatile int timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+    private volatile Statement running = null;
+    private volatile boolean cancelled = false;
+
+    public QueryExecutor(Scanner console) {
+        this.console = console;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    // 0 means no timeout
+    public void setTimeoutSeconds(int timeoutSeconds) {
+        this.timeoutSeconds = Math.max(0, timeoutSeconds);
+    }
+
+    /**
+     * Route Ctrl-C to cancel(). Uses the JDK's sun.misc.Signal; where that is not
+     * available only the 'cancel' command works.
+     */
+    public void installInterruptHandler() {
+        try {
+            handleSigint();
+        } catch (IllegalArgumentException | LinkageError e) {
+            System.err.println("⚠️ Warning: Ctrl-C cannot cancel queries here; type 'cancel' instead.");
+        }
+    }
+
+    // The only use of the internal API. javac warns that sun.misc.Signal may be removed
+    // (a warning @SuppressWarnings cannot silence); it is the JDK's only SIGINT hook.
+    private void handleSigint() {
+        sun.misc.Signal.handle(new sun.misc.Signal("INT"), signal -> onInterrupt());
+    }
+
+    private void onInterrupt() {
+        if (!cancel()) {
+            System.out.println("\nExiting NFL Database. Goodbye!");
+            System.exit(130);
+        }
+    }
+
+    // --- Cancel the running statement; false if nothing is running ---
+    public boolean cancel() {
+        Statement statement = running;
+        if (statement == null) {
+            return false;
+        }
+        cancelled = true;
+        System.out.println("\n-> Cancelling query...");
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            System.err.println("⚠️ Warning: Could not cancel query: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Run work (which executes statement) on the worker and wait for it. The
+     * statement is given the current query timeout first.
+     */
+    public <T> T execute(Statement statement, Work<T> work) throws SQLException {
+        statement.setQueryTimeout(timeoutSeconds);
+        cancelled = false;
+        running = statement;
+        long start = System.nanoTime();
+        Future<T> result = worker.submit(work::run);
+        try {
+            while (true) {
+                try {
+                    return result.get(POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    pollConsole();
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cancelled) {
+                throw new CancelledException(String.format("Query cancelled after %.0f ms.", (System.nanoTime() - start) / 1e6), cause);
+            }
+            if (cause instanceof SQLTimeoutException) {
+                throw new SQLException("Query timed out after " + timeoutSeconds + " s (change with 'timeout <seconds>').", cause);
+            }
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new CancelledException("Interrupted while waiting for the query.", e);
+        } finally {
+            running = null;
+        }
+    }
+
+    // Only an interactive console is polled: piped input holds the next commands, not 'cancel'
+    private void pollConsole() {
+        if (System.console() == null) {
+            return;
+        }
+        try {
+            if (System.in.available() > 0) {
+                String line = console.nextLine().trim();
+                if (line.equalsIgnoreCase("cancel")) {
+                    cancel();
+                } else if (!line.isEmpty()) {
+                    System.out.println("-> A query is still running; type 'cancel' or press Ctrl-C to stop it.");
+                }
+            }
+        } catch (IOException e) {
+            // stdin closed; Ctrl-C still works
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per-season and all-season totals of every numeric column of a stat table,
+ * for every player or team at once (keyed by the snapshot string id of the key
+ * column, e.g. player_id or team).
+ *
+ * The table is read in one pass that partitions its rows by season; the season
+ * partitions are then aggregated in parallel and merged. Built once per snapshot
+ * and kept by the caller until the data is reloaded.
+ */
+public class Rollup {
+
+    // Ratios and ranks: the all-season value is the average of the seasons, not their sum
+    static final Set<String> RATE_COLUMNS = Set.of("pacr", "racr", "dakota", "target_share", "air_yards_share", "wopr", "division_rank");
+
+    final String table;
+    final String[] columns;
+    final boolean[] averaged;
+    private final Map<Integer, TreeMap<Integer, double[]>> byKey = new HashMap<>();
+
+    private Rollup(String table, String[] columns, boolean[] averaged) {
+        this.table = table;
+        this.columns = columns;
+        this.averaged = averaged;
+    }
+
+    // Season -> column values for one key; empty if the key never appears
+    public TreeMap<Integer, double[]> seasons(int key) {
+        TreeMap<Integer, double[]> seasons = byKey.get(key);
+        return seasons == null ? new TreeMap<>() : seasons;
+    }
+
+    // Sum (or average, for rate columns) over all seasons; NaN where every season is NULL
+    public double[] total(int key) {
+        double[] total = new double[columns.length];
+        int[] counted = new int[columns.length];
+        Arrays.fill(total, Double.NaN);
+        for (double[] season : seasons(key).values()) {
+            for (int c = 0; c < columns.length; c++) {
+                if (!Double.isNaN(season[c])) {
+                    total[c] = Double.isNaN(total[c]) ? season[c] : total[c] + season[c];
+                    counted[c]++;
+                }
+            }
+        }
+        for (int c = 0; c < columns.length; c++) {
+            if (averaged[c] && counted[c] > 0) {
+                total[c] /= counted[c];
+            }
+        }
+        return total;
+    }
+
+    public static Rollup build(Snapshot.Table table, String keyColumn) {
+        int keyCol = table.columnIndex(keyColumn);
+        int seasonCol = table.columnIndex("season");
+
+        // Every numeric column except the season itself
+        List<Integer> numeric = new ArrayList<>();
+        for (int c = 0; c < table.columns.length; c++) {
+            if (c != seasonCol && table.types[c] != SqlDump.TYPE_STRING) {
+                numeric.add(c);
+            }
+        }
+        String[] columns = new String[numeric.size()];
+        boolean[] averaged = new boolean[numeric.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = table.columns[numeric.get(i)];
+            averaged[i] = RATE_COLUMNS.contains(columns[i]);
+        }
+
+        // Aggregate each season on its own core, then merge
+        Map<Integer, Map<Integer, double[]>> partials = partitionBySeason(table).entrySet().parallelStream()
+            .collect(Collectors.toMap(Map.Entry::getKey, season -> {
+                Map<Integer, double[]> sums = new HashMap<>();
+                for (int row : season.getValue()) {
+                    if (table.isNull(row, keyCol)) {
+                        continue;
+                    }
+                    double[] sum = sums.computeIfAbsent(table.getStringId(row, keyCol), k -> {
+                        double[] empty = new double[columns.length];
+                        Arrays.fill(empty, Double.NaN);
+                        return empty;
+                    });
+                    for (int i = 0; i < columns.length; i++) {
+                        int c = numeric.get(i);
+                        if (!table.isNull(row, c)) {
+                            double v = table.getDouble(row, c);
+                            sum[i] = Double.isNaN(sum[i]) ? v : sum[i] + v;
+                        }
+                    }
+                }
+                return sums;
+            }));
+
+        Rollup rollup = new Rollup(table.name, columns, averaged);
+        for (Map.Entry<Integer, Map<Integer, double[]>> season : partials.entrySet()) {
+            for (Map.Entry<Integer, double[]> key : season.getValue().entrySet()) {
+                rollup.byKey.computeIfAbsent(key.getKey(), k -> new TreeMap<>()).put(season.getKey(), key.getValue());
+            }
+        }
+        return rollup;
+    }
+
+    // --- Roster history: player -> season -> teams, and team -> season -> roster size ---
+    public static class Roster {
+        private final Map<Integer, TreeMap<Integer, List<String>>> teamsByPlayer = new HashMap<>();
+        private final Map<Integer, TreeMap<Integer, Integer>> sizeByTeam = new HashMap<>();
+
+        public TreeMap<Integer, List<String>> teams(int playerKey) {
+            TreeMap<Integer, List<String>> teams = teamsByPlayer.get(playerKey);
+            return teams == null ? new TreeMap<>() : teams;
+        }
+
+        public TreeMap<Integer, Integer> sizes(int teamKey) {
+            TreeMap<Integer, Integer> sizes = sizeByTeam.get(teamKey);
+            return sizes == null ? new TreeMap<>() : sizes;
+        }
+    }
+
+    public static Roster buildRoster(Snapshot.Table roaster) {
+        int teamCol = roaster.columnIndex("team");
+        int playerCol = roaster.columnIndex("player_id");
+
+        Map<Integer, Roster> partials = partitionBySeason(roaster).entrySet().parallelStream()
+            .collect(Collectors.toMap(Map.Entry::getKey, season -> {
+                Roster part = new Roster();
+                for (int row : season.getValue()) {
+                    if (roaster.isNull(row, teamCol) || roaster.isNull(row, playerCol)) {
+                        continue; // e.g. (2024, 'NO', NULL)
+                    }
+                    int team = roaster.getStringId(row, teamCol);
+                    part.teamsByPlayer.computeIfAbsent(roaster.getStringId(row, playerCol), k -> new TreeMap<>())
+                        .computeIfAbsent(season.getKey(), k -> new ArrayList<>())
+                        .add(roaster.getString(row, teamCol));
+                    part.sizeByTeam.computeIfAbsent(team, k -> new TreeMap<>()).merge(season.getKey(), 1, Integer::sum);
+                }
+                return part;
+            }));
+
+        Roster roster = new Roster();
+        for (Roster part : partials.values()) {
+            part.teamsByPlayer.forEach((player, seasons) ->
+                roster.teamsByPlayer.computeIfAbsent(player, k -> new TreeMap<>()).putAll(seasons));
+            part.sizeByTeam.forEach((team, seasons) ->
+                roster.sizeByTeam.computeIfAbsent(team, k -> new TreeMap<>()).putAll(seasons));
+        }
+        return roster;
+    }
+
+    // --- Single pass: row numbers grouped by season (rows without a season are dropped) ---
+    private static Map<Integer, int[]> partitionBySeason(Snapshot.Table table) {
+        int seasonCol = table.columnIndex("season");
+        Map<Integer, int[]> rows = new HashMap<>();
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int row = 0; row < table.rowCount; row++) {
+            if (table.isNull(row, seasonCol)) {
+                continue;
+            }
+            int season = table.getInt(row, seasonCol);
+            int count = counts.merge(season, 1, Integer::sum);
+            int[] seasonRows = rows.get(season);
+            if (seasonRows == null || seasonRows.length < count) {
+                seasonRows = seasonRows == null ? new int[64] : Arrays.copyOf(seasonRows, seasonRows.length * 2);
+                rows.put(season, seasonRows);
+            }
+            seasonRows[count - 1] = row;
+        }
+        rows.replaceAll((season, seasonRows) -> Arrays.copyOf(seasonRows, counts.get(season)));
+        return rows;
+    }
+}
@@ -2,6 +2,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -9,10 +10,23 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.time.Year;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,13 +34,220 @@ public class SQLServerDemo {
 
     // IMPORTANT: Make sure this file exists and contains all necessary table definitions and data.
     private static final String NFL_SQL_FILE = "nfl.sql"; 
+
+    // Rows per executeBatch() when loading validated tables
+    private static final int LOAD_BATCH_ROWS = 1000;
+
+    // Queries slower than the threshold are written with their plan to slow_queries.log
+    private static final SlowQueryLog slowQueryLog = new SlowQueryLog(SlowQueryLog.DEFAULT_THRESHOLD_MS);
+
+    // Binary copy of NFL_SQL_FILE for offline use (see Snapshot); mapped at startup if present
+    private static Snapshot snapshot = null;
     
     private static final Scanner consoleScanner = new Scanner(System.in); 
+
+    // Runs queries on a worker thread with a timeout; 'cancel' / Ctrl-C abort them
+    private static final QueryExecutor queryExecutor = new QueryExecutor(consoleScanner);
+
+    // Background connection and nfl.sql load, started by main
+    private static DatabaseStartup database = null;
     
     // --- CONSTANTS FOR PAGINATION ---
     private static final int PLAYER_PAGE_SIZE = 20; 
     private static final int TEAM_PAGE_SIZE = 10; 
 
+    // Season offered by every "Enter Season Year" prompt
+    private static final int DEFAULT_SEASON = 2023;
+
+    // Earliest season accepted in season lists (the first NFL season)
+    private static final int FIRST_SEASON = 1920;
+
+    // --- Season-scoped command queries (shared with the background warm-up) ---
+    private static final String SQL_WIN = "SELECT t.team_name, p.season FROM post_team_stat p JOIN team t ON p.team = t.team_abbr WHERE p.finish = 'champ.win' AND p.season = ?";
+
+    private static final String SQL_TDL = "WITH MaxTDsPerJersey AS ( "
+            + "    SELECT p.jersey_number, MAX(rps.passing_tds + rps.rushing_tds + rps.receiving_tds) AS max_tds "
+            + "    FROM reg_player_stat rps JOIN player p ON rps.player_id = p.player_id "
+            + "    WHERE p.jersey_number IS NOT NULL AND rps.season = ? "
+            + "    GROUP BY p.jersey_number "
+            + ") "
+            + "SELECT p.display_name, mtd.jersey_number, mtd.max_tds AS Touchdowns "
+            + "FROM MaxTDsPerJersey mtd "
+            + "JOIN player p ON mtd.jersey_number = p.jersey_number "
+            + "JOIN reg_player_stat rps ON p.player_id = rps.player_id "
+            + "WHERE mtd.max_tds = (rps.passing_tds + rps.rushing_tds + rps.receiving_tds) AND rps.season = ? "
+            + "ORDER BY mtd.jersey_number";
+
+    private static final String SQL_HLD = "SELECT t.team_name FROM reg_team_stat rts JOIN team t ON rts.team = t.team_abbr "
+            + "WHERE rts.season = ? "
+            + "AND rts.points_scored > (SELECT AVG(points_scored) FROM reg_team_stat WHERE season = ?) "
+            + "AND rts.division_rank IN (3, 4)";
+
+    private static final String SQL_REF_AWAY_WIN = "SELECT TOP 1 r.official_name, COUNT(o.game_id) AS gamesOfficiatedAwayWin "
+            + "FROM refree r JOIN official o ON r.official_id = o.official_id "
+            + "JOIN game g ON o.game_id = g.game_id "
+            + "WHERE g.away_score > g.home_score AND g.season = ? "
+            + "GROUP BY r.official_name "
+            + "ORDER BY gamesOfficiatedAwayWin DESC";
+
+    // Parameters: team, team, season, team, season
+    private static final String SQL_REF_PENALTIES = "WITH refOfficiated AS ( "
+            + "    SELECT r.official_id, r.official_name, COUNT(g.game_id) AS gamesOfficiated "
+            + "    FROM refree r JOIN official o ON r.official_id = o.official_id "
+            + "    JOIN game g ON o.game_id = g.game_id "
+            + "    WHERE (g.home_team = ? OR g.away_team = ?) "
+            + "    AND g.season = ? "
+            + "    GROUP BY r.official_id, r.official_name "
+            + "), "
+            + "targetRef AS ( "
+            + "    SELECT official_name, gamesOfficiated AS max_games "
+            + "    FROM refOfficiated "
+            + "    WHERE gamesOfficiated = (SELECT MAX(gamesOfficiated) FROM refOfficiated) "
+            + ") "
+            + "SELECT t.team_abbr, rts.penalties, tr.official_name, tr.max_games "
+            + "FROM reg_team_stat rts JOIN team t ON rts.team = t.team_abbr "
+            + "CROSS JOIN targetRef tr "
+            + "WHERE t.team_abbr = ? AND rts.season = ?";
+
+    // Record columns of ref_splits / ref_record over teamGames(home, result): result is 1 for a
+    // win and -1 for a loss from the team's side, home 1 for its home games
+    private static final String SQL_REF_RECORD_COLUMNS = "COUNT(*) AS games, "
+            + "SUM(CASE WHEN result = 1 THEN 1 ELSE 0 END) AS wins, "
+            + "SUM(CASE WHEN result = -1 THEN 1 ELSE 0 END) AS losses, "
+            + "CONCAT(SUM(CASE WHEN home = 1 AND result = 1 THEN 1 ELSE 0 END), '-', SUM(CASE WHEN home = 1 AND result = -1 THEN 1 ELSE 0 END)) AS home_w_l, "
+            + "CONCAT(SUM(CASE WHEN home = 0 AND result = 1 THEN 1 ELSE 0 END), '-', SUM(CASE WHEN home = 0 AND result = -1 THEN 1 ELSE 0 END)) AS away_w_l, "
+            + "CAST(SUM(CASE WHEN result = 1 THEN 1.0 ELSE 0 END) / COUNT(*) AS DECIMAL(10,3)) AS win_pct ";
+
+    // Parameters: team, team, team, team, season
+    private static final String SQL_REF_SPLITS = "WITH teamGames AS ( "
+            + "    SELECT o.official_id, "
+            + "        CASE WHEN g.home_team = ? THEN 1 ELSE 0 END AS home, "
+            + "        SIGN(g.home_score - g.away_score) * CASE WHEN g.home_team = ? THEN 1 ELSE -1 END AS result "
+            + "    FROM official o JOIN game g ON o.game_id = g.game_id "
+            + "    WHERE (g.home_team = ? OR g.away_team = ?) AND g.season = ? "
+            + ") "
+            + "SELECT r.official_name, " + SQL_REF_RECORD_COLUMNS
+            + "FROM teamGames tg JOIN refree r ON tg.official_id = r.official_id "
+            + "GROUP BY r.official_id, r.official_name "
+            + "ORDER BY games DESC, r.official_name";
+
+    // Parameters: official id, official name, season
+    private static final String SQL_REF_RECORD = "WITH refGames AS ( "
+            + "    SELECT g.home_team, g.away_team, SIGN(g.home_score - g.away_score) AS margin "
+            + "    FROM refree r JOIN official o ON r.official_id = o.official_id "
+            + "    JOIN game g ON o.game_id = g.game_id "
+            + "    WHERE (CAST(r.official_id AS VARCHAR(20)) = ? OR r.official_name = ?) AND g.season = ? "
+            + "), "
+            + "teamGames AS ( "
+            + "    SELECT home_team AS team, 1 AS home, margin AS result FROM refGames "
+            + "    UNION ALL "
+            + "    SELECT away_team, 0, -margin FROM refGames "
+            + ") "
+            + "SELECT team, " + SQL_REF_RECORD_COLUMNS
+            + "FROM teamGames WHERE team IS NOT NULL "
+            + "GROUP BY team "
+            + "ORDER BY team";
+
+    private static final String SQL_DEF_TDS = "SELECT p.display_name, p.position, (rps.passing_tds + rps.receiving_tds + rps.rushing_tds + rps.special_teams_tds) AS defensive_tds "
+            + "FROM player p JOIN reg_player_stat rps ON p.player_id = rps.player_id "
+            + "WHERE p.position IN ('CB', 'S', 'LB', 'DE', 'DT') "
+            + "AND rps.season = ? "
+            + "AND (rps.passing_tds + rps.receiving_tds + rps.rushing_tds + rps.special_teams_tds) > 0";
+
+    private static final String SQL_LOW_TARGETS = "SELECT p.display_name, rps.targets, rps.receptions "
+            + "FROM player p JOIN reg_player_stat rps ON p.player_id = rps.player_id "
+            + "WHERE rps.targets > rps.receptions AND rps.season = ?";
+
+    private static final String SQL_TOP5_POST_TDS = "SELECT TOP 5 p.display_name, (pps.passing_tds + pps.receiving_tds + pps.rushing_tds + pps.special_teams_tds) AS Touchdowns "
+            + "FROM player p JOIN post_player_stat pps ON p.player_id = pps.player_id "
+            + "WHERE pps.season = ? "
+            + "ORDER BY Touchdowns DESC";
+
+    private static final String SQL_DEFENSIVE_TRIFECTA = "SELECT p.display_name, p.position FROM player p JOIN reg_player_stat rps ON p.player_id = rps.player_id WHERE rps.sacks >= 1 AND rps.sack_fumbles >= 1 AND rps.interceptions >= 1 AND rps.season = ?";
+
+    private static final String SQL_SHUTOUTS = "SELECT t.team_abbr, g.week, g.season "
+            + "FROM team t "
+            + "JOIN game g ON (t.team_abbr = g.home_team AND g.home_score = 0) OR (t.team_abbr = g.away_team AND g.away_score = 0) "
+            + "WHERE g.season = ? "
+            + "ORDER BY g.week, t.team_abbr";
+
+    private static final String SQL_WEEK_SCORES = "WITH GameScores AS ( "
+            + "    SELECT week, home_score AS score FROM game WHERE game_type = 'reg' AND season = ? "
+            + "    UNION ALL "
+            + "    SELECT week, away_score AS score FROM game WHERE game_type = 'reg' AND season = ? "
+            + ") "
+            + "SELECT gs.week, MAX(gs.score) AS MaxScore, MIN(gs.score) AS MinScore "
+            + "FROM GameScores gs GROUP BY gs.week ORDER BY gs.week";
+
+    private static final String SQL_TEAM_TOP_SCORER = "WITH PlayerPoints AS ( "
+            + "    SELECT "
+            + "        rps.player_id, r.team, p.display_name, "
+            + "        ((rps.receiving_tds + rps.passing_tds + rps.rushing_tds + rps.special_teams_tds) * 6) + "
+            + "        ((rps.rushing_2pt_conversions + rps.receiving_2pt_conversions + rps.passing_2pt_conversions) * 2) AS player_points "
+            + "    FROM reg_player_stat rps JOIN player p ON rps.player_id = p.player_id "
+            + "    WHERE rps.season = ? "
+            + "), "
+            + "MaxOutput AS ( "
+            + "    SELECT r.team, MAX(pp.player_points) AS max_points "
+            + "    FROM roaster r JOIN PlayerPoints pp "
+            + "    ON r.player_id = pp.player_id GROUP by r.team "
+            + ") "
+            + "SELECT r.team, pp.display_name, mo.max_points "
+            + "FROM roaster r JOIN PlayerPoints pp "
+            + "ON r.player_id = pp.player_id JOIN MaxOutput mo "
+            + "ON r.team = mo.team AND pp.player_points = mo.max_points "
+            + "ORDER BY r.team";
+
+    private static String topTeamsSql(String table, String statColumn, int limit) {
+        return "SELECT TOP " + limit + " t.team_name, ts." + statColumn + " " +
+            "FROM " + table + " ts " +
+            "JOIN team t ON t.team_abbr = ts.team " +
+            "WHERE ts.season = ? " +
+            "ORDER BY ts." + statColumn + " DESC";
+    }
+
+    // --- Data Classes for the local result cache and warm-up ---
+    private static class CachedResult {
+        final String[] labels;
+        final List<String[]> rows;
+        public CachedResult(String[] labels, List<String[]> rows) {
+            this.labels = labels;
+            this.rows = rows;
+        }
+    }
+
+    private static class WarmupQuery {
+        final String sql;
+        final Object[] params;
+        public WarmupQuery(String sql, Object... params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    // Results pre-fetched by the warm-up, each served once by the matching command (so a
+    // command never shows a stale copy twice); emptied by every write path (clearResultCache)
+    private static final Map<String, CachedResult> resultCache = new ConcurrentHashMap<>();
+    private static volatile int cacheGeneration = 0; // bumped on clear so a running warm-up stops filling it
+
+    // Named derived stats from metrics.cfg, parsed once at startup
+    private static Map<String, Metric> metrics = new LinkedHashMap<>();
+
+    // player_id pool id -> display_name, built from the snapshot on first use
+    private static Map<Integer, String> snapshotPlayerNames = null;
+
+    // Career/franchise rollups per stat table and the roster history, built on first use
+    // from the snapshot and dropped whenever the data is reloaded
+    private static final Map<String, Rollup> rollups = new ConcurrentHashMap<>();
+    private static Rollup.Roster rosterHistory = null;
+
+    // Referee x team x season counts behind the ref_* commands, built by loadSqlFile from the
+    // rows it loaded and dropped by load_csv; while there is none the commands run SQL
+    private static volatile Officiating officiating = null;
+
+    // Set by main; the warm-up opens its own connection with it
+    private static String connectionUrl;
+
     // --- Data Classes for Java Pagination ---
     private static class PlayerData {
         String playerId;
@@ -64,78 +285,103 @@ public class SQLServerDemo {
         System.out.println("-------------------------------------\n");
     }
 
-    private static void loadSqlFile(Connection connection, String filename) throws IOException, SQLException {
-        File sqlFile = new File(filename);
-        if (!sqlFile.exists()) {
-            throw new FileNotFoundException("File not found: " + filename);
+    // Accepts nfl.sql or nfl.sql.gz (decompressed while it is read).
+    // Rows are validated locally first, so the database only receives clean batches;
+    // rejects go to quarantine.sql. Returns the cleaned dump for the snapshot export.
+    // progress receives a short description of each step (shown while startup is waited on),
+    // output the result lines (ConsoleWriter::post when run in the background).
+    private static SqlDump loadSqlFile(Connection connection, String filename, Consumer<String> progress, Consumer<String> output) throws IOException, SQLException {
+        long start = System.nanoTime();
+        progress.accept("reading " + filename);
+        SqlDump dump = SqlDump.read(filename);
+        if (dump.stopped) {
+            output.accept("⚠️ **STOP MARKER REACHED.** Loading only the statements above it.");
         }
 
-        Scanner scanner = new Scanner(sqlFile);
-
-        StringBuilder currentStatement = new StringBuilder();
-        int lineNumber = 0;
-        int executedCount = 0;
+        progress.accept("validating " + filename);
+        LoadValidator.Report report = LoadValidator.validate(dump, LoadValidator.QUARANTINE_FILE);
+        if (report.rejected() + report.duplicates() > 0) {
+            output.accept("⚠️ Quarantined " + (report.rejected() + report.duplicates()) + " rows to " + LoadValidator.QUARANTINE_FILE
+                + " (" + report.rejected() + " rejected, " + report.duplicates() + " duplicates):");
+            for (Map.Entry<String, int[]> table : report.counts.entrySet()) {
+                int[] counts = table.getValue();
+                if (counts[1] + counts[2] > 0) {
+                    output.accept(String.format("   %-20s %d rejected, %d duplicates", table.getKey(), counts[2], counts[1]));
+                }
+            }
+        }
+        long validated = System.nanoTime();
 
+        officiating = null; // describes the old data until this load commits
         connection.setAutoCommit(false);
 
         try (Statement statement = connection.createStatement()) {
-
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                lineNumber++;
-
-                // 👇👇👇 ADDED BREAK POINT CHECK 👇👇👇
-                if (line.trim().equalsIgnoreCase("-- --- STOP EXECUTION HERE ---")) {
-                    System.out.println("⚠️ **STOP MARKER REACHED.** Executing DROP commands now and halting file load.");
-                    break; // Exit the while loop early
-                }
-                // 👆👆👆 ADDED BREAK POINT CHECK 👆👆👆
-
-                String trimmed = line.trim();
-                if (trimmed.startsWith("--") || trimmed.startsWith("/*") || trimmed.startsWith("*")) {
-                    continue; // skip comments
-                }
-
-                currentStatement.append(line).append("\n");
-
-                // End of SQL statement
-                if (trimmed.endsWith(";")) {
-                    String sql = currentStatement.toString().trim();
-
-                    // Remove trailing semicolon
-                    if (sql.endsWith(";")) {
-                        sql = sql.substring(0, sql.length() - 1);
-                    }
-
-                    if (!sql.isEmpty()) {
-                        try {
-                            statement.addBatch(sql);
-                            executedCount++;
-                        } catch (SQLException ex) {
-                            System.err.println("\n❌ SQL ERROR at line " + lineNumber);
-                            System.err.println("Failed SQL statement:\n" + sql);
-                            System.err.println("Error message: " + ex.getMessage());
-                            throw ex; // rethrow to stop processing
-                        }
-                    }
-
-                    currentStatement.setLength(0); // reset buffer
-                }
+            // use / drop / create, in file order
+            progress.accept("creating tables");
+            for (String sql : dump.schema) {
+                statement.addBatch(sql);
             }
-
-            // Execute all batched statements (the DROP commands)
             statement.executeBatch();
+
+            // Then the rows, parents first (tables are kept in CREATE TABLE order)
+            int inserted = 0;
+            int tableNumber = 0;
+            for (SqlDump.Table table : dump.tables.values()) {
+                progress.accept("inserting " + table.name + " (table " + (++tableNumber) + " of " + dump.tables.size() + ")");
+                inserted += insertRows(connection, table);
+            }
             connection.commit();
 
-            System.out.println("✅ Successfully executed " + executedCount + " SQL statements from " + filename);
+            // The validated rows are exactly what the database now holds
+            progress.accept("indexing officials");
+            officiating = Officiating.build(dump);
+
+            output.accept(String.format("✅ Executed %d statements and inserted %,d rows from %s (validate %.0f ms, load %.0f ms)",
+                dump.schema.size(), inserted, filename, (validated - start) / 1e6, (System.nanoTime() - validated) / 1e6));
 
         } catch (SQLException e) {
             connection.rollback();
             throw e;
         } finally {
             connection.setAutoCommit(true);
-            scanner.close();
         }
+        return dump;
+    }
+
+    // --- HELPER: Insert the rows of one validated table as typed JDBC batches ---
+    private static int insertRows(Connection connection, SqlDump.Table table) throws SQLException {
+        if (table.rows.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO " + table.name + " (" + String.join(", ", table.columns) + ") VALUES ("
+            + String.join(", ", Collections.nCopies(table.columns.size(), "?")) + ")";
+        int inBatch = 0;
+        try (PreparedStatement pStmt = connection.prepareStatement(sql)) {
+            for (String[] row : table.rows) {
+                for (int c = 0; c < row.length; c++) {
+                    int type = table.types.get(c);
+                    if (row[c] == null) {
+                        pStmt.setNull(c + 1, type == SqlDump.TYPE_INT ? Types.INTEGER
+                            : type == SqlDump.TYPE_DOUBLE ? Types.DECIMAL : Types.VARCHAR);
+                    } else if (type == SqlDump.TYPE_INT) {
+                        pStmt.setInt(c + 1, Integer.parseInt(row[c]));
+                    } else if (type == SqlDump.TYPE_DOUBLE) {
+                        pStmt.setBigDecimal(c + 1, new BigDecimal(row[c]));
+                    } else {
+                        pStmt.setString(c + 1, row[c]);
+                    }
+                }
+                pStmt.addBatch();
+                if (++inBatch == LOAD_BATCH_ROWS) {
+                    pStmt.executeBatch();
+                    inBatch = 0;
+                }
+            }
+            if (inBatch > 0) {
+                pStmt.executeBatch();
+            }
+        }
+        return table.rows.size();
     }
 
 
@@ -161,7 +407,36 @@ public class SQLServerDemo {
             System.exit(1);
         }
 
-        String connectionUrl =
+        // Optional: slow_query_ms=<ms> (negative disables the slow-query log)
+        String slowQueryMs = prop.getProperty("slow_query_ms");
+        if (slowQueryMs != null) {
+            try {
+                slowQueryLog.setThresholdMs(Long.parseLong(slowQueryMs.trim()));
+            } catch (NumberFormatException e) {
+                System.out.println("Ignoring invalid slow_query_ms in auth.cfg: " + slowQueryMs);
+            }
+        }
+
+        // Optional: query_timeout=<seconds> (0 disables the timeout)
+        String queryTimeout = prop.getProperty("query_timeout");
+        if (queryTimeout != null) {
+            try {
+                queryExecutor.setTimeoutSeconds(Integer.parseInt(queryTimeout.trim()));
+            } catch (NumberFormatException e) {
+                System.out.println("Ignoring invalid query_timeout in auth.cfg: " + queryTimeout);
+            }
+        }
+
+        // --- Parse the derived-metric definitions (optional file) ---
+        if (new File(Metric.DEFAULT_FILE).exists()) {
+            try {
+                metrics = Metric.load(Metric.DEFAULT_FILE);
+            } catch (IOException e) {
+                System.err.println("⚠️ Warning: Could not read " + Metric.DEFAULT_FILE + ": " + e.getMessage());
+            }
+        }
+
+        connectionUrl =
                 "jdbc:sqlserver://uranium.cs.umanitoba.ca:1433;"
                 + "database=cs3380;"
                 + "user=" + username + ";"
@@ -170,29 +445,50 @@ public class SQLServerDemo {
                 + "trustServerCertificate=false;"
                 + "loginTimeout=30;";
 
-        // 2. Database Connection, SQL Load, and Input Loop
-        try (Connection connection = DriverManager.getConnection(connectionUrl)) {
-
-            // --- Load the nfl.sql file ---
+        // 2. Connect and load nfl.sql in the background; the prompt is usable right away
+        database = DatabaseStartup.start(connectionUrl, (connection, progress) -> {
             try {
-                loadSqlFile(connection, NFL_SQL_FILE);
+                loadSqlFile(connection, NFL_SQL_FILE, progress, ConsoleWriter::post);
             } catch (FileNotFoundException e) {
-                System.err.println("❌ ERROR: The SQL file " + NFL_SQL_FILE + " was not found in the current directory.");
-                System.err.println("The program will continue, but the database may not be initialized correctly.");
+                ConsoleWriter.postError("❌ ERROR: The SQL file " + NFL_SQL_FILE + " was not found in the current directory.");
+                ConsoleWriter.postError("The program will continue, but the database may not be initialized correctly.");
             } catch (IOException e) {
-                System.err.println("❌ ERROR reading SQL file: " + e.getMessage());
+                ConsoleWriter.postError("❌ ERROR reading SQL file: " + e.getMessage());
             } catch (SQLException e) {
-                 System.err.println("❌ ERROR executing SQL statements from " + NFL_SQL_FILE + ": " + e.getMessage());
+                ConsoleWriter.postError("❌ ERROR executing SQL statements from " + NFL_SQL_FILE + ": " + e.getMessage());
             }
-            // ------------------------------------
+        });
+
+        // --- Map the local snapshot, if one has been exported ---
+        if (new File(Snapshot.DEFAULT_FILE).exists()) {
+            try {
+                long start = System.nanoTime();
+                snapshot = Snapshot.open(Snapshot.DEFAULT_FILE);
+                System.out.printf("✅ Mapped snapshot %s in %.1f ms%n", Snapshot.DEFAULT_FILE, (System.nanoTime() - start) / 1e6);
+            } catch (IOException e) {
+                System.err.println("⚠️ Warning: Could not open snapshot " + Snapshot.DEFAULT_FILE + ": " + e.getMessage());
+            }
+        }
 
-            // Display welcome screen
-            displayWelcomeScreen();
+        // Display welcome screen
+        displayWelcomeScreen();
+        System.out.println("-> Connecting to the database in the background; local commands work now ('status' shows progress).");
 
-            // Input loop
+        // --- Optional: warmup=true [warmup_seasons=2023,2024] in auth.cfg (starts once the data is loaded) ---
+        if (Boolean.parseBoolean(prop.getProperty("warmup", "false"))) {
+            int[] warmupSeasons = parseSeasons(prop.getProperty("warmup_seasons", String.valueOf(DEFAULT_SEASON)));
+            database.onReady(() -> startWarmup(warmupSeasons));
+        }
+
+        // Ctrl-C now cancels the running query instead of ending the session
+        queryExecutor.installInterruptHandler();
+
+        // Input loop; database commands wait for the connection on first use
+        Connection connection = database.lazyConnection();
+        try {
             String userInput = "";
             while (true) {
-                System.out.print("NFL > ");
+                ConsoleWriter.prompt("NFL > "); // background messages first
                 userInput = consoleScanner.nextLine().trim(); 
 
                 if (userInput.equalsIgnoreCase("q") || userInput.equalsIgnoreCase("quit")) {
@@ -206,16 +502,43 @@ public class SQLServerDemo {
                     processCommand(connection, userInput);
                 }
             }
-
-        }
-        catch (SQLException e) {
-            System.out.println("\nDatabase connection error. Details:");
-            e.printStackTrace();
         }
         catch (Exception e) {
             System.out.println("\nAn unexpected error occurred. Details:");
             e.printStackTrace();
-        } 
+        }
+        finally {
+            database.close();
+        }
+    }
+
+    // --- HELPER: Parse "2023,2024" or "2020-2024" into seasons; invalid entries are skipped ---
+    // Seasons must lie between the first NFL season and the current year, which also keeps
+    // a typo like 2020-99999999 from expanding into millions of entries.
+    private static int[] parseSeasons(String text) {
+        int lastSeason = Year.now().getValue();
+        List<Integer> seasons = new ArrayList<>();
+        for (String part : text.split("[,\\s]+")) {
+            try {
+                int dash = part.indexOf('-', 1);
+                int first = Integer.parseInt(dash > 0 ? part.substring(0, dash) : part);
+                int last = dash > 0 ? Integer.parseInt(part.substring(dash + 1)) : first;
+                if (first > last) {
+                    System.err.println("⚠️ Warning: Ignoring inverted season range '" + part + "'.");
+                } else if (first < FIRST_SEASON || last > lastSeason) {
+                    System.err.println("⚠️ Warning: Ignoring season '" + part + "' (seasons run from " + FIRST_SEASON + " to " + lastSeason + ").");
+                } else {
+                    for (int season = first; season <= last; season++) {
+                        seasons.add(season);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                if (!part.isEmpty()) {
+                    System.err.println("⚠️ Warning: Ignoring invalid season '" + part + "'.");
+                }
+            }
+        }
+        return seasons.stream().mapToInt(Integer::intValue).toArray();
     }
 
     // --- HELPER: For safe integer input ---
@@ -255,52 +578,237 @@ public class SQLServerDemo {
     }
     
     // --- Helper to execute Statement (for simple, non-parameterized queries) ---
-    private static void runSimpleQuery(Connection connection, String sql) throws SQLException {
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            printResultSet(rs);
+    private static void runSimpleQuery(Connection connection, String command, String sql) throws SQLException {
+        CachedResult warmed = resultCache.remove(cacheKey(sql, new Object[0]));
+        if (warmed != null) {
+            printCachedResult(warmed);
+            return;
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            executeLogged(connection, stmt, command, sql, new Object[0], () -> stmt.executeQuery(sql));
+        }
+    }
+
+    // --- HELPER METHOD FOR QUERY EXECUTION (PreparedStatement, parameters bound in order) ---
+    private static void runQuery(Connection connection, String command, String sql, Object... params) throws SQLException {
+        CachedResult warmed = resultCache.remove(cacheKey(sql, params));
+        if (warmed != null) {
+            printCachedResult(warmed);
+            return;
+        }
+
+        try (PreparedStatement pStmt = connection.prepareStatement(sql)) {
+            bindParameters(pStmt, params);
+            executeLogged(connection, pStmt, command, sql, params, pStmt::executeQuery);
+        }
+    }
+
+    // --- HELPER: Run and print a query on the worker, then hand its timings to the slow-query log ---
+    // The log (and its plan request) runs after the worker is done, on this thread.
+    private static CachedResult executeLogged(Connection connection, Statement stmt, String command, String sql, Object[] params,
+                                              QueryExecutor.Work<ResultSet> query) throws SQLException {
+        long start = System.nanoTime();
+        long[] executed = { 0 }; // set on the worker once the first result is back
+        try {
+            CachedResult result = queryExecutor.execute(stmt, () -> {
+                try (ResultSet rs = query.run()) {
+                    executed[0] = System.nanoTime();
+                    return printResultSet(rs);
+                }
+            });
+            slowQueryLog.record(connection, queryExecutor, command, sql, params,
+                executed[0] - start, System.nanoTime() - executed[0], result.rows.size(), null);
+            return result;
+        } catch (SQLException e) {
+            long end = System.nanoTime();
+            long executeEnd = executed[0] == 0 ? end : executed[0];
+            slowQueryLog.record(connection, queryExecutor, command, sql, params,
+                executeEnd - start, end - executeEnd, 0, e);
+            throw e;
         }
     }
 
-    // --- HELPER METHOD FOR QUERY EXECUTION (PreparedStatement) ---
-    private static void runQuery(PreparedStatement pStmt) throws SQLException {
-        try (ResultSet rs = pStmt.executeQuery()) {
-            printResultSet(rs);
+    static void bindParameters(PreparedStatement pStmt, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] instanceof Integer) {
+                pStmt.setInt(i + 1, (Integer) params[i]);
+            } else if (params[i] instanceof String) {
+                pStmt.setString(i + 1, (String) params[i]);
+            } else {
+                pStmt.setObject(i + 1, params[i]);
+            }
         }
     }
 
-    private static void printResultSet(ResultSet rs) throws SQLException {
+    // --- HELPER: Print rows as they are fetched, keeping a copy for the result cache ---
+    // Runs on the query worker, so the first row shows as soon as the driver has it.
+    private static CachedResult printResultSet(ResultSet rs) throws SQLException {
         ResultSetMetaData rsmd = rs.getMetaData();
         int columnCount = rsmd.getColumnCount();
 
-        // Print Header
-        System.out.print("   | ");
+        String[] labels = new String[columnCount];
         for (int i = 1; i <= columnCount; i++) {
             // Using getColumnLabel for cleaner output
-            System.out.printf("%-20s | ", rsmd.getColumnLabel(i));
+            labels[i - 1] = rsmd.getColumnLabel(i);
         }
-        System.out.println("\n---| " + "---------------------".repeat(columnCount));
+        printHeader(labels);
 
         // Print Rows
-        int rowCount = 0;
+        List<String[]> rows = new ArrayList<>();
         while (rs.next()) {
-            rowCount++;
-            
-            System.out.print(String.format("%2d| ", rowCount));
-            
+            String[] row = new String[columnCount];
             for (int i = 1; i <= columnCount; i++) {
-                String value = rs.getString(i);
-                System.out.printf("%-20s | ", value == null ? "NULL" : value);
+                row[i - 1] = rs.getString(i);
             }
-            System.out.println();
+            rows.add(row);
+            printRow(rows.size(), row);
+        }
+
+        printFooter(rows.size());
+        return new CachedResult(labels, rows);
+    }
+
+    private static void printCachedResult(CachedResult result) {
+        printHeader(result.labels);
+        for (int i = 0; i < result.rows.size(); i++) {
+            printRow(i + 1, result.rows.get(i));
         }
+        printFooter(result.rows.size());
+    }
 
+    private static void printHeader(String[] labels) {
+        System.out.print("   | ");
+        for (String label : labels) {
+            System.out.printf("%-20s | ", label);
+        }
+        System.out.println("\n---| " + "---------------------".repeat(labels.length));
+    }
+
+    private static void printRow(int rowNumber, String[] values) {
+        System.out.print(String.format("%2d| ", rowNumber));
+        for (String value : values) {
+            System.out.printf("%-20s | ", value == null ? "NULL" : value);
+        }
+        System.out.println();
+    }
+
+    private static void printFooter(int rowCount) {
         if (rowCount == 0) {
             System.out.println("   | No results found.");
         }
         System.out.println("--- End of Query ---");
     }
 
+    // --- HELPER: Read a result set into memory without printing it ---
+    private static CachedResult readResultSet(ResultSet rs) throws SQLException {
+        int columnCount = rs.getMetaData().getColumnCount();
+        String[] labels = new String[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            labels[i - 1] = rs.getMetaData().getColumnLabel(i);
+        }
+        List<String[]> rows = new ArrayList<>();
+        while (rs.next()) {
+            String[] row = new String[columnCount];
+            for (int i = 1; i <= columnCount; i++) {
+                row[i - 1] = rs.getString(i);
+            }
+            rows.add(row);
+        }
+        return new CachedResult(labels, rows);
+    }
+
+    private static String cacheKey(String sql, Object[] params) {
+        return sql + " " + Arrays.toString(params);
+    }
+
+    // Every path that writes to the database calls this; returns the number of results dropped
+    private static int clearResultCache() {
+        cacheGeneration++;
+        int entries = resultCache.size();
+        resultCache.clear();
+        return entries;
+    }
+
+    // --- BACKGROUND WARM-UP ---
+    // Replays every season-scoped command for the given seasons on a second connection,
+    // so the server's plan cache and buffer pool are hot and the first run of each is
+    // served from the result cache. Commands that need a player/team/stadium argument are skipped.
+    private static List<WarmupQuery> warmupQueries(int season) {
+        List<WarmupQuery> queries = new ArrayList<>();
+        queries.add(new WarmupQuery(SQL_WIN, season));
+        queries.add(new WarmupQuery(topTeamsSql("reg_team_stat", "points_scored", 3), season));
+        queries.add(new WarmupQuery(topTeamsSql("post_team_stat", "passing_yards", 3), season));
+        queries.add(new WarmupQuery(SQL_TDL, season, season));
+        queries.add(new WarmupQuery(SQL_HLD, season, season));
+        queries.add(new WarmupQuery(SQL_REF_AWAY_WIN, season));
+        queries.add(new WarmupQuery(SQL_DEF_TDS, season));
+        queries.add(new WarmupQuery(SQL_LOW_TARGETS, season));
+        queries.add(new WarmupQuery(SQL_TOP5_POST_TDS, season));
+        queries.add(new WarmupQuery(SQL_DEFENSIVE_TRIFECTA, season));
+        queries.add(new WarmupQuery(SQL_SHUTOUTS, season));
+        queries.add(new WarmupQuery(SQL_WEEK_SCORES, season, season));
+        queries.add(new WarmupQuery(SQL_TEAM_TOP_SCORER, season));
+        return queries;
+    }
+
+    private static void startWarmup(int[] seasons) {
+        Thread worker = new Thread(() -> runWarmup(seasons), "warmup");
+        worker.setDaemon(true); // never keeps the JVM alive after 'quit'
+        worker.start();
+    }
+
+    private static void runWarmup(int[] seasons) {
+        long start = System.nanoTime();
+        int generation = cacheGeneration;
+        int executed = 0;
+        int failed = 0;
+        String firstError = null;
+
+        // A connection of its own: JDBC connections must not be shared with the input loop
+        try (Connection connection = DriverManager.getConnection(connectionUrl)) {
+            for (int season : seasons) {
+                for (WarmupQuery query : warmupQueries(season)) {
+                    String key = cacheKey(query.sql, query.params);
+                    if (resultCache.containsKey(key)) {
+                        continue;
+                    }
+                    if (generation != cacheGeneration) {
+                        ConsoleWriter.post("⚠️ Warm-up stopped: the data changed while it ran.");
+                        return;
+                    }
+                    try (PreparedStatement pStmt = connection.prepareStatement(query.sql)) {
+                        bindParameters(pStmt, query.params);
+                        pStmt.setQueryTimeout(queryExecutor.getTimeoutSeconds());
+                        CachedResult result;
+                        try (ResultSet rs = pStmt.executeQuery()) {
+                            result = readResultSet(rs);
+                        }
+                        if (generation == cacheGeneration) {
+                            resultCache.putIfAbsent(key, result);
+                        }
+                        executed++;
+                    } catch (SQLException e) {
+                        if (firstError == null) {
+                            firstError = e.getMessage();
+                        }
+                        failed++;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            ConsoleWriter.postError("⚠️ Warm-up could not connect: " + e.getMessage());
+            return;
+        }
+
+        // Shown before the next prompt, not over whatever the user is typing
+        ConsoleWriter.post(String.format("✅ Warm-up finished: %d queries for season(s) %s in %.0f ms",
+            executed, Arrays.toString(seasons), (System.nanoTime() - start) / 1e6));
+        if (failed > 0) {
+            ConsoleWriter.postError("⚠️ Warm-up: " + failed + " queries failed; first error: " + firstError);
+        }
+    }
+
     // --- PAGINATION LOGIC  ---
     // Note: This relies on fetching all data into memory first.
     private static void displayPagedPlayers(Connection connection) throws SQLException {
@@ -310,11 +818,15 @@ public class SQLServerDemo {
         String sql = "SELECT player_id, display_name FROM player ORDER BY display_name";
         System.out.println("-> Fetching all player data for pagination...");
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                allPlayers.add(new PlayerData(rs.getString("player_id"), rs.getString("display_name")));
-            }
+        try (Statement stmt = connection.createStatement()) {
+            queryExecutor.execute(stmt, () -> {
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        allPlayers.add(new PlayerData(rs.getString("player_id"), rs.getString("display_name")));
+                    }
+                }
+                return null;
+            });
         }
 
         int totalPlayers = allPlayers.size();
@@ -381,15 +893,19 @@ public class SQLServerDemo {
         String sql = "SELECT team_abbr, team_name, team_division FROM team ORDER BY team_name";
         System.out.println("-> Fetching all team data for pagination...");
 
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                allTeams.add(new TeamData(
-                    rs.getString(1), // team_abbr
-                    rs.getString(2), // team_name
-                    rs.getString(3)  // team_division
-                ));
-            }
+        try (Statement stmt = connection.createStatement()) {
+            queryExecutor.execute(stmt, () -> {
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        allTeams.add(new TeamData(
+                            rs.getString(1), // team_abbr
+                            rs.getString(2), // team_name
+                            rs.getString(3)  // team_division
+                        ));
+                    }
+                }
+                return null;
+            });
         }
 
         int totalTeams = allTeams.size();
@@ -475,12 +991,10 @@ public class SQLServerDemo {
             
             // Command: win - Team won the championship (super bowl) in a specific season?
             else if (action.equals("win")) {
-                int season = promptForInt("Enter Season Year for Super Bowl winner", 2023);
+                int season = promptForInt("Enter Season Year for Super Bowl winner", DEFAULT_SEASON);
 
-                sql = "SELECT t.team_name, p.season FROM post_team_stat p JOIN team t ON p.team = t.team_abbr WHERE p.finish = 'champ.win' AND p.season = ?";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                runQuery(pStmt);
+                sql = SQL_WIN;
+                runQuery(connection, command, sql, season);
             } 
             // Command: tds <player id> - Given a player id, get the number of touchdowns scored.
             else if (action.equals("tds")) {
@@ -489,25 +1003,31 @@ public class SQLServerDemo {
                     return;
                 }
                 
-                int season = promptForInt("Enter Season Year", 2023);
+                int season = promptForInt("Enter Season Year", DEFAULT_SEASON);
 
                 sql = "SELECT p.display_name, (pps.passing_tds + pps.receiving_tds + pps.rushing_tds + pps.special_teams_tds) AS TouchDowns FROM player p JOIN post_player_stat pps ON p.player_id = pps.player_id WHERE p.player_id = ? AND pps.season = ?";
                 
                 pStmt = connection.prepareStatement(sql);
                 pStmt.setString(1, argument);
                 pStmt.setInt(2, season);
-                
-                try (ResultSet rs = pStmt.executeQuery()) {
-                    if (rs.next()) {
+                PreparedStatement tdsStmt = pStmt;
+
+                boolean found = queryExecutor.execute(tdsStmt, () -> {
+                    try (ResultSet rs = tdsStmt.executeQuery()) {
+                        if (!rs.next()) {
+                            return false;
+                        }
                         printResultSet(rs);
+                        return true;
+                    }
+                });
+                if (!found) {
+                    String playerName = getPlayerName(connection, argument);
+                    if (playerName == null) {
+                        System.err.println("❌ Error: Player ID '" + argument + "' not found in the database.");
                     } else {
-                        String playerName = getPlayerName(connection, argument);
-                        if (playerName == null) {
-                            System.err.println("❌ Error: Player ID '" + argument + "' not found in the database.");
-                        } else {
-                            System.out.println("Player: " + playerName);
-                            System.err.println("⚠️ Warning: No Post Season touchdown statistics found for this player in season " + season + ".");
-                        }
+                        System.out.println("Player: " + playerName);
+                        System.err.println("⚠️ Warning: No Post Season touchdown statistics found for this player in season " + season + ".");
                     }
                 }
             } 
@@ -538,18 +1058,11 @@ public class SQLServerDemo {
                     statColumn = "passing_yards";   // ← Valid column for postseason
                 }
 
-                int season = promptForInt("Enter Season Year (" + typeLabel + ")", 2023);
+                int season = promptForInt("Enter Season Year (" + typeLabel + ")", DEFAULT_SEASON);
 
-                sql =
-                    "SELECT TOP " + limit + " t.team_name, ts." + statColumn + " " +
-                    "FROM " + table + " ts " +
-                    "JOIN team t ON t.team_abbr = ts.team " +
-                    "WHERE ts.season = ? " +
-                    "ORDER BY ts." + statColumn + " DESC";
+                sql = topTeamsSql(table, statColumn, limit);
 
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                runQuery(pStmt);
+                runQuery(connection, command, sql, season);
             }
             // Command: host <stadium name> - How many games were hosted by a certain stadium?
             else if (action.equals("host")) {
@@ -557,13 +1070,10 @@ public class SQLServerDemo {
                     System.err.println("❌ Error: Missing stadium name. Usage: host <stadium name>");
                     return;
                 }
-                int season = promptForInt("Enter Season Year", 2023);
+                int season = promptForInt("Enter Season Year", DEFAULT_SEASON);
                 
                 sql = "SELECT COUNT(g.game_id) AS gamesHosted FROM game g JOIN played_in pi ON g.game_id = pi.game_id JOIN stadium s ON pi.stadium_id = s.stadium_id WHERE g.game_type = 'post' AND s.stadium = ? AND g.season = ?";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setString(1, argument);
-                pStmt.setInt(2, season);
-                runQuery(pStmt);
+                runQuery(connection, command, sql, argument, season);
             }
             // Command: ypc <player name> - What was the yards per carry (YPC) of a specific player?
             else if (action.equals("ypc")) {
@@ -571,14 +1081,11 @@ public class SQLServerDemo {
                     System.err.println("❌ Error: Missing player name. Usage: ypc <player name>");
                     return;
                 }
-                int season = promptForInt("Enter Season Year (Regular Season)", 2023);
+                int season = promptForInt("Enter Season Year (Regular Season)", DEFAULT_SEASON);
 
                 sql = "SELECT p.display_name, CAST((rps.rushing_yards + rps.receiving_yards + rps.passing_yards) AS DECIMAL(10,2)) / NULLIF(rps.carries, 0) AS YPC FROM player p JOIN reg_player_stat rps ON p.player_id = rps.player_id WHERE p.display_name = ? AND rps.season = ?";
                 
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setString(1, argument);
-                pStmt.setInt(2, season);
-                runQuery(pStmt);
+                runQuery(connection, command, sql, argument, season);
             }
             // Command: score <team name> - How many points did a team score?
             else if (action.equals("score")) {
@@ -586,36 +1093,19 @@ public class SQLServerDemo {
                     System.err.println("❌ Error: Missing team name. Usage: score <team name>");
                     return;
                 }
-                int season = promptForInt("Enter Season Year (Post Season)", 2023);
+                int season = promptForInt("Enter Season Year (Post Season)", DEFAULT_SEASON);
                 
                 sql = "SELECT t.team_name, pts.points_scored FROM post_team_stat pts JOIN team t ON pts.team = t.team_abbr WHERE t.team_name = ? AND pts.season = ?";
                     
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setString(1, argument);
-                pStmt.setInt(2, season);
-                runQuery(pStmt);
+                runQuery(connection, command, sql, argument, season);
             }
             // Command: tdl - Return the touchdown leader at every jersey number for the regular season
             else if (action.equals("tdl")) {
-                int season = promptForInt("Enter Season Year for Touchdown Leaders", 2023);
+                int season = promptForInt("Enter Season Year for Touchdown Leaders", DEFAULT_SEASON);
                 
-                sql = "WITH MaxTDsPerJersey AS ( "
-                    + "    SELECT p.jersey_number, MAX(rps.passing_tds + rps.rushing_tds + rps.receiving_tds) AS max_tds "
-                    + "    FROM reg_player_stat rps JOIN player p ON rps.player_id = p.player_id "
-                    + "    WHERE p.jersey_number IS NOT NULL AND rps.season = ? "
-                    + "    GROUP BY p.jersey_number "
-                    + ") "
-                    + "SELECT p.display_name, mtd.jersey_number, mtd.max_tds AS Touchdowns "
-                    + "FROM MaxTDsPerJersey mtd "
-                    + "JOIN player p ON mtd.jersey_number = p.jersey_number "
-                    + "JOIN reg_player_stat rps ON p.player_id = rps.player_id "
-                    + "WHERE mtd.max_tds = (rps.passing_tds + rps.rushing_tds + rps.receiving_tds) AND rps.season = ? "
-                    + "ORDER BY mtd.jersey_number";
+                sql = SQL_TDL;
 
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                pStmt.setInt(2, season);
-                runQuery(pStmt);
+                runQuery(connection, command, sql, season, season);
             }
             // Command: tdp <week no.> - What is the total point differential of all games combined in a specific week?
             else if (action.equals("tdp")) {
@@ -625,12 +1115,12 @@ public class SQLServerDemo {
                 }
                 try {
                     int week = Integer.parseInt(argument);
-                    int season = promptForInt("Enter Season Year for point differential", 2023);
+                    int season = promptForInt("Enter Season Year for point differential", DEFAULT_SEASON);
                     
                     // Building the query string for Statement (no ? needed)
                     sql = "SELECT SUM(home_score - away_score) AS Total_Point_Differential FROM game WHERE week = " + week + " AND game_type = 'reg' AND season = " + season;
                     
-                    runSimpleQuery(connection, sql);
+                    runSimpleQuery(connection, command, sql);
                 } catch (NumberFormatException e) {
                     System.err.println("❌ Error: Week number must be an integer.");
                 }
@@ -648,7 +1138,7 @@ public class SQLServerDemo {
                 try {
                     int max_yards = Integer.parseInt(m.group(1));
                     String division = m.group(2);
-                    int season = promptForInt("Enter Season Year for player stats", 2023);
+                    int season = promptForInt("Enter Season Year for player stats", DEFAULT_SEASON);
 
                     sql = "SELECT p.display_name, (rps.receiving_yards + rps.passing_yards + rps.rushing_yards) AS total_yds "
                         + "FROM reg_player_stat rps "
@@ -662,11 +1152,7 @@ public class SQLServerDemo {
                         + "AND (rps.receiving_yards + rps.passing_yards + rps.rushing_yards) < ? "
                         + "ORDER BY total_yds DESC";
                     
-                    pStmt = connection.prepareStatement(sql);
-                    pStmt.setString(1, division);
-                    pStmt.setInt(2, season);
-                    pStmt.setInt(3, max_yards);
-                    runQuery(pStmt);
+                    runQuery(connection, command, sql, division, season, max_yards);
 
                 } catch (NumberFormatException e) {
                     System.err.println("❌ Error: Max yards must be a valid integer.");
@@ -674,43 +1160,23 @@ public class SQLServerDemo {
             }
             // Command: top_half_low_div
             else if (action.equals("top_half_low_div") || action.equals("hld")) {
-                int season = promptForInt("Enter Season Year", 2023);
+                int season = promptForInt("Enter Season Year", DEFAULT_SEASON);
                 
-                sql = "SELECT t.team_name FROM reg_team_stat rts JOIN team t ON rts.team = t.team_abbr "
-                    + "WHERE rts.season = ? "
-                    + "AND rts.points_scored > (SELECT AVG(points_scored) FROM reg_team_stat WHERE season = ?) "
-                    + "AND rts.division_rank IN (3, 4)";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                pStmt.setInt(2, season);
-                runQuery(pStmt);
+                sql = SQL_HLD;
+                runQuery(connection, command, sql, season, season);
             }
             // Command: ref_away_win
             else if (action.equals("ref_away_win") || action.equals("ref_win")) {
-                int season = promptForInt("Enter Season Year for Referee Stats", 2023);
-
-                sql = "SELECT TOP 1 r.official_name, COUNT(o.game_id) AS gamesOfficiatedAwayWin "
-                    + "FROM refree r JOIN official o ON r.official_id = o.official_id "
-                    + "JOIN game g ON o.game_id = g.game_id "
-                    + "WHERE g.away_score > g.home_score AND g.season = ? "
-                    + "GROUP BY r.official_name "
-                    + "ORDER BY gamesOfficiatedAwayWin DESC";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                runQuery(pStmt);
+                int season = promptForInt("Enter Season Year for Referee Stats", DEFAULT_SEASON);
+
+                displayRefAwayWin(connection, command, season);
             }
             // Command: def_tds
             else if (action.equals("def_tds")) {
-                int season = promptForInt("Enter Season Year for Player Stats", 2023);
+                int season = promptForInt("Enter Season Year for Player Stats", DEFAULT_SEASON);
                 
-                sql = "SELECT p.display_name, p.position, (rps.passing_tds + rps.receiving_tds + rps.rushing_tds + rps.special_teams_tds) AS defensive_tds "
-                    + "FROM player p JOIN reg_player_stat rps ON p.player_id = rps.player_id "
-                    + "WHERE p.position IN ('CB', 'S', 'LB', 'DE', 'DT') "
-                    + "AND rps.season = ? "
-                    + "AND (rps.passing_tds + rps.receiving_tds + rps.rushing_tds + rps.special_teams_tds) > 0";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                runQuery(pStmt);
+                sql = SQL_DEF_TDS;
+                runQuery(connection, command, sql, season);
             }
             // Command: win_pct <team name>
             else if (action.equals("win_pct")) {
@@ -718,15 +1184,12 @@ public class SQLServerDemo {
                     System.err.println("❌ Error: Missing team name. Use 'all_teams' to see names. Usage: win_pct <team name>");
                     return;
                 }
-                int season = promptForInt("Enter Season Year for Win Percentage", 2023);
+                int season = promptForInt("Enter Season Year for Win Percentage", DEFAULT_SEASON);
 
                 sql = "SELECT t.team_abbr, CAST(rts.wins AS DECIMAL(10,2)) / NULLIF((rts.wins + rts.losses), 0) AS win_pct "
                     + "FROM team t JOIN reg_team_stat rts ON t.team_abbr = rts.team "
                     + "WHERE t.team_name = ? AND rts.season = ?";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setString(1, argument);
-                pStmt.setInt(2, season);
-                runQuery(pStmt);
+                runQuery(connection, command, sql, argument, season);
             }
             // Command: ref_penalties <team abbr>
             else if (action.equals("ref_penalties") || action.equals("ref_pen")) {
@@ -734,120 +1197,274 @@ public class SQLServerDemo {
                     System.err.println("❌ Error: Missing team abbreviation. Use 'all_teams' to see abbreviations. Usage: ref_penalties <team abbr>");
                     return;
                 }
-                String teamAbbr = argument.toUpperCase();
-                int season = promptForInt("Enter Season Year for Penalty Stats", 2023);
-
-                sql = "WITH refOfficiated AS ( "
-                    + "    SELECT r.official_id, r.official_name, COUNT(g.game_id) AS gamesOfficiated "
-                    + "    FROM refree r JOIN official o ON r.official_id = o.official_id "
-                    + "    JOIN game g ON o.game_id = g.game_id "
-                    + "    WHERE (g.home_team = ? OR g.away_team = ?) "
-                    + "    AND g.season = ? " 
-                    + "    GROUP BY r.official_id, r.official_name "
-                    + "), "
-                    + "targetRef AS ( "
-                    + "    SELECT official_name, gamesOfficiated AS max_games "
-                    + "    FROM refOfficiated "
-                    + "    WHERE gamesOfficiated = (SELECT MAX(gamesOfficiated) FROM refOfficiated) "
-                    + ") "
-                    + "SELECT t.team_abbr, rts.penalties, tr.official_name, tr.max_games "
-                    + "FROM reg_team_stat rts JOIN team t ON rts.team = t.team_abbr "
-                    + "CROSS JOIN targetRef tr "
-                    + "WHERE t.team_abbr = ? AND rts.season = ?"; 
+                String teamAbbr = argument.toUpperCase(Locale.ROOT);
+                int season = promptForInt("Enter Season Year for Penalty Stats", DEFAULT_SEASON);
 
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setString(1, teamAbbr);
-                pStmt.setString(2, teamAbbr);
-                pStmt.setInt(3, season);
-                pStmt.setString(4, teamAbbr);
-                pStmt.setInt(5, season);
-                runQuery(pStmt);
+                displayRefPenalties(connection, command, teamAbbr, season);
+            }
+            // Command: ref_splits <team abbr> - Team's record under each referee
+            else if (action.equals("ref_splits")) {
+                if (argument.isEmpty()) {
+                    System.err.println("❌ Error: Missing team abbreviation. Use 'all_teams' to see abbreviations. Usage: ref_splits <team abbr>");
+                    return;
+                }
+                int season = promptForInt("Enter Season Year for Referee Stats", DEFAULT_SEASON);
+
+                displayRefSplits(connection, command, argument.toUpperCase(Locale.ROOT), season);
+            }
+            // Command: ref_record <official id | name> - Every team's record under one referee
+            else if (action.equals("ref_record") || action.equals("ref_rec")) {
+                if (argument.isEmpty()) {
+                    System.err.println("❌ Error: Missing referee. Usage: ref_record <official id | official name>");
+                    return;
+                }
+                int season = promptForInt("Enter Season Year for Referee Stats", DEFAULT_SEASON);
+
+                displayRefRecord(connection, command, argument, season);
             }
             // Command: low_targets
             else if (action.equals("low_targets") || action.equals("low_trgts")) {
-                int season = promptForInt("Enter Season Year for Player Stats", 2023);
+                int season = promptForInt("Enter Season Year for Player Stats", DEFAULT_SEASON);
 
-                sql = "SELECT p.display_name, rps.targets, rps.receptions "
-                    + "FROM player p JOIN reg_player_stat rps ON p.player_id = rps.player_id "
-                    + "WHERE rps.targets > rps.receptions AND rps.season = ?";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                runQuery(pStmt);
+                sql = SQL_LOW_TARGETS;
+                runQuery(connection, command, sql, season);
             }
             // Command: top5_post_tds
             else if (action.equals("top5_post_tds") || action.equals("top5_tds")) {
-                int season = promptForInt("Enter Season Year for Postseason TDs", 2023);
-                
-                sql = "SELECT TOP 5 p.display_name, (pps.passing_tds + pps.receiving_tds + pps.rushing_tds + pps.special_teams_tds) AS Touchdowns "
-                    + "FROM player p JOIN post_player_stat pps ON p.player_id = pps.player_id "
-                    + "WHERE pps.season = " + season
-                    + " ORDER BY Touchdowns DESC";
+                int season = promptForInt("Enter Season Year for Postseason TDs", DEFAULT_SEASON);
                 
-                runSimpleQuery(connection, sql);
+                sql = SQL_TOP5_POST_TDS;
+                runQuery(connection, command, sql, season);
             }
             // Command: defensive_trifecta
             else if (action.equals("defensive_trifecta") || action.equals("DFT")) {
-                int season = promptForInt("Enter Season Year for Stats", 2023);
+                int season = promptForInt("Enter Season Year for Stats", DEFAULT_SEASON);
                 
-                sql = "SELECT p.display_name, p.position FROM player p JOIN reg_player_stat rps ON p.player_id = rps.player_id WHERE rps.sacks >= 1 AND rps.sack_fumbles >= 1 AND rps.interceptions >= 1 AND rps.season = ?";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                runQuery(pStmt);
+                sql = SQL_DEFENSIVE_TRIFECTA;
+                runQuery(connection, command, sql, season);
             }
             // Command: shutouts
             else if (action.equals("shutouts")) {
-                int season = promptForInt("Enter Season Year for Shutouts", 2023);
+                int season = promptForInt("Enter Season Year for Shutouts", DEFAULT_SEASON);
 
-                sql = "SELECT t.team_abbr, g.week, g.season "
-                    + "FROM team t "
-                    + "JOIN game g ON (t.team_abbr = g.home_team AND g.home_score = 0) OR (t.team_abbr = g.away_team AND g.away_score = 0) "
-                    + "WHERE g.season = ? "
-                    + "ORDER BY g.week, t.team_abbr";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                runQuery(pStmt);
+                sql = SQL_SHUTOUTS;
+                runQuery(connection, command, sql, season);
             }
             // Command: week_scores
             else if (action.equals("week_scores")) {
-                int season = promptForInt("Enter Season Year for Week Scores", 2023);
+                int season = promptForInt("Enter Season Year for Week Scores", DEFAULT_SEASON);
                 
-                sql = "WITH GameScores AS ( "
-                    + "    SELECT week, home_score AS score FROM game WHERE game_type = 'reg' AND season = ? "
-                    + "    UNION ALL "
-                    + "    SELECT week, away_score AS score FROM game WHERE game_type = 'reg' AND season = ? "
-                    + ") "
-                    + "SELECT gs.week, MAX(gs.score) AS MaxScore, MIN(gs.score) AS MinScore "
-                    + "FROM GameScores gs GROUP BY gs.week ORDER BY gs.week";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                pStmt.setInt(2, season);
-                runQuery(pStmt);
+                sql = SQL_WEEK_SCORES;
+                runQuery(connection, command, sql, season, season);
             }
             // Command: team_top_scorer
             else if (action.equals("team_top_scorer") || action.equals("top_scorer")) {
-                int season = promptForInt("Enter Season Year for Top Scorers", 2023);
+                int season = promptForInt("Enter Season Year for Top Scorers", DEFAULT_SEASON);
                 
-                sql = "WITH PlayerPoints AS ( "
-                    + "    SELECT "
-                    + "        rps.player_id, r.team, p.display_name, "
-                    + "        ((rps.receiving_tds + rps.passing_tds + rps.rushing_tds + rps.special_teams_tds) * 6) + "
-                    + "        ((rps.rushing_2pt_conversions + rps.receiving_2pt_conversions + rps.passing_2pt_conversions) * 2) AS player_points "
-                    + "    FROM reg_player_stat rps JOIN player p ON rps.player_id = p.player_id "
-                    + "    WHERE rps.season = ? "
-                    + "), "
-                    + "MaxOutput AS ( "
-                    + "    SELECT r.team, MAX(pp.player_points) AS max_points "
-                    + "    FROM roaster r JOIN PlayerPoints pp " 
-                    + "    ON r.player_id = pp.player_id GROUP by r.team "
-                    + ") "
-                    + "SELECT r.team, pp.display_name, mo.max_points "
-                    + "FROM roaster r JOIN PlayerPoints pp "
-                    + "ON r.player_id = pp.player_id JOIN MaxOutput mo "
-                    + "ON r.team = mo.team AND pp.player_points = mo.max_points "
-                    + "ORDER BY r.team";
-                pStmt = connection.prepareStatement(sql);
-                pStmt.setInt(1, season);
-                runQuery(pStmt);
+                sql = SQL_TEAM_TOP_SCORER;
+                runQuery(connection, command, sql, season);
+            }
+            // Command: export-snapshot [file] - Write every table of nfl.sql to a binary snapshot
+            else if (action.equals("export-snapshot") || action.equals("export_snapshot")) {
+                exportSnapshot(argument.isEmpty() ? Snapshot.DEFAULT_FILE : argument);
+            }
+            // Command: snapshot - Show the tables held in the mapped snapshot
+            else if (action.equals("snapshot")) {
+                displaySnapshotInfo();
+            }
+            // Command: slow_log [ms|off] - Show or change the slow-query threshold
+            else if (action.equals("slow_log")) {
+                if (argument.equalsIgnoreCase("off")) {
+                    slowQueryLog.setThresholdMs(-1);
+                } else if (!argument.isEmpty()) {
+                    try {
+                        slowQueryLog.setThresholdMs(Long.parseLong(argument));
+                    } catch (NumberFormatException e) {
+                        System.err.println("❌ Error: Threshold must be a whole number of milliseconds. Usage: slow_log [ms|off]");
+                        return;
+                    }
+                }
+                System.out.println(slowQueryLog.getThresholdMs() < 0
+                    ? "Slow-query log is off."
+                    : "Slow-query log threshold: " + slowQueryLog.getThresholdMs() + " ms (" + SlowQueryLog.LOG_FILE + ")");
+            }
+            // Command: slow_queries [n] - List the slowest logged queries
+            else if (action.equals("slow_queries") || action.equals("slow_q")) {
+                int limit = 10;
+                try {
+                    if (!argument.isEmpty()) {
+                        limit = Integer.parseInt(argument);
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("⚠️ Warning: Invalid number. Defaulting to 10.");
+                }
+                if (limit < 1) {
+                    System.err.println("❌ Error: N must be at least 1. Usage: slow_queries [n]");
+                    return;
+                }
+                slowQueryLog.printWorst(limit);
+            }
+            // Command: warmup [seasons] - Pre-run the season-scoped commands in the background
+            else if (action.equals("warmup")) {
+                int[] seasons = parseSeasons(argument.isEmpty() ? String.valueOf(DEFAULT_SEASON) : argument);
+                if (seasons.length == 0) {
+                    System.err.println("❌ Error: No valid seasons given. Usage: warmup [season,season...]");
+                    return;
+                }
+                if (database.hasFailed()) {
+                    System.err.println("❌ Error: Database unavailable: " + database.status());
+                    return;
+                }
+                // Same chain as the automatic warm-up: never against tables that are still loading
+                database.onReady(() -> startWarmup(seasons)); // runs at once if startup is done
+                if (database.isReady()) {
+                    System.out.println("-> Warm-up started in the background for season(s) " + Arrays.toString(seasons) + ".");
+                } else {
+                    System.out.println("-> Warm-up for season(s) " + Arrays.toString(seasons) + " will start once the database is ready: " + database.status());
+                }
+            }
+            // Command: clear_cache - Forget warmed query results
+            else if (action.equals("clear_cache")) {
+                int entries = clearResultCache();
+                System.out.println("-> Cleared " + entries + " cached result(s).");
+            }
+            // Command: metrics - List the metrics defined in metrics.cfg
+            else if (action.equals("metrics")) {
+                displayMetrics();
+            }
+            // Command: metric <name> [k] - Top K players by a derived metric
+            else if (action.equals("metric")) {
+                String[] metricArgs = argument.split("\\s+");
+                Metric metric = metrics.get(metricArgs[0].toLowerCase());
+                if (metric == null) {
+                    System.err.println("❌ Error: Unknown metric '" + metricArgs[0] + "'. Use 'metrics' to see them. Usage: metric <name> [k]");
+                    return;
+                }
+                // Checked once, for both the snapshot and the SQL path (TOP k)
+                int limit = 10;
+                if (metricArgs.length > 1) {
+                    try {
+                        limit = Integer.parseInt(metricArgs[1]);
+                    } catch (NumberFormatException e) {
+                        System.err.println("❌ Error: K must be a whole number.");
+                        return;
+                    }
+                }
+                if (limit < 1) {
+                    System.err.println("❌ Error: K must be at least 1.");
+                    return;
+                }
+
+                int seasonType = promptForSeasonType();  // 1 = reg, 2 = post
+                String table = seasonType == 1 ? "reg_player_stat" : "post_player_stat";
+                int season = promptForInt("Enter Season Year (" + (seasonType == 1 ? "Regular Season" : "Post Season") + ")", DEFAULT_SEASON);
+
+                if (snapshot != null) {
+                    // Served from the mapped snapshot with the compiled metric
+                    displayLocalMetric(metric, table, season, limit);
+                } else {
+                    Set<String> columns = tableColumns(connection, table);
+                    for (String column : metric.columns()) {
+                        if (!columns.contains(column)) {
+                            System.err.println("❌ Error: Column '" + column + "' used by metric '" + metric.name + "' does not exist in " + table + ".");
+                            return;
+                        }
+                    }
+                    String value = metric.toSql("s");
+                    sql = "SELECT TOP " + limit + " p.display_name, " + value + " AS " + metric.sqlName() + " "
+                        + "FROM " + table + " s JOIN player p ON p.player_id = s.player_id "
+                        + "WHERE s.season = ? AND " + value + " IS NOT NULL "
+                        + "ORDER BY " + metric.sqlName() + " DESC";
+                    runQuery(connection, command, sql, season);
+                }
+            }
+            // Command: leaderboard <table> <column|metric> <k> [seasons] - Parallel top K from the snapshot
+            else if (action.equals("leaderboard") || action.equals("lb")) {
+                String[] lbArgs = argument.split("\\s+", 4);
+                if (lbArgs.length < 3) {
+                    System.err.println("❌ Error: Invalid format. Usage: leaderboard <table> <column|metric> <k> [seasons, e.g. 2023,2024 or 2020-2024]");
+                    return;
+                }
+                int limit;
+                try {
+                    limit = Integer.parseInt(lbArgs[2]);
+                } catch (NumberFormatException e) {
+                    System.err.println("❌ Error: K must be a whole number.");
+                    return;
+                }
+                if (limit < 1) {
+                    System.err.println("❌ Error: K must be at least 1.");
+                    return;
+                }
+                Set<Integer> seasons = null; // all seasons
+                if (lbArgs.length == 4) {
+                    seasons = new HashSet<>();
+                    for (int season : parseSeasons(lbArgs[3])) {
+                        seasons.add(season);
+                    }
+                }
+                displayLeaderboard(lbArgs[0].toLowerCase(), lbArgs[1], limit, seasons);
+            }
+            // Command: career <player id> - Player totals across every season
+            else if (action.equals("career")) {
+                if (argument.isEmpty()) {
+                    System.err.println("❌ Error: Missing player ID. Use 'all_players' to see IDs. Usage: career <player id>");
+                    return;
+                }
+                displayCareer(argument);
+            }
+            // Command: franchise <team abbr> - Team totals across every season
+            else if (action.equals("franchise")) {
+                if (argument.isEmpty()) {
+                    System.err.println("❌ Error: Missing team abbreviation. Use 'all_teams' to see abbreviations. Usage: franchise <team abbr>");
+                    return;
+                }
+                displayFranchise(argument);
+            }
+            // Command: reload - Re-run nfl.sql and rebuild every local cache
+            else if (action.equals("reload")) {
+                SqlDump dump = loadSqlFile(connection, NFL_SQL_FILE, step -> { }, System.out::println);
+                clearResultCache();
+                exportSnapshot(Snapshot.DEFAULT_FILE, dump); // re-maps and drops rollups
+            }
+            // Command: load_csv <table> <file> - Bulk insert a CSV (or .csv.gz) into a table
+            else if (action.equals("load_csv")) {
+                String[] csvArgs = argument.split("\\s+", 2);
+                if (csvArgs.length < 2) {
+                    System.err.println("❌ Error: Invalid format. Usage: load_csv <table> <file.csv[.gz]>");
+                    return;
+                }
+                long start = System.nanoTime();
+                officiating = null; // the matrix only knows the rows nfl.sql loaded
+                int rows = CsvLoader.load(connection, csvArgs[0].toLowerCase(), csvArgs[1]);
+                clearResultCache();
+                invalidateLocalCaches(); // like reload: nothing derived from the old data survives
+                System.out.printf("✅ Inserted %,d rows from %s into %s in %.0f ms%n", rows, csvArgs[1], csvArgs[0], (System.nanoTime() - start) / 1e6);
+            }
+            // Command: timeout [seconds] - Show or set the query timeout (0 = none)
+            else if (action.equals("timeout")) {
+                if (!argument.isEmpty()) {
+                    try {
+                        queryExecutor.setTimeoutSeconds(Integer.parseInt(argument));
+                    } catch (NumberFormatException e) {
+                        System.err.println("❌ Error: Invalid format. Usage: timeout [seconds]");
+                        return;
+                    }
+                }
+                int timeout = queryExecutor.getTimeoutSeconds();
+                System.out.println("Query timeout: " + (timeout == 0 ? "none" : timeout + " s"));
+            }
+            // Command: status - Progress of the background connection and data load
+            else if (action.equals("status")) {
+                System.out.println("Database: " + (database == null ? "not started" : database.status()));
+                System.out.println("Snapshot: " + (snapshot == null ? "not mapped" : Snapshot.DEFAULT_FILE));
+                System.out.println("Cached results: " + resultCache.size());
+            }
+            // Command: cancel - Only meaningful while a query runs (see QueryExecutor)
+            else if (action.equals("cancel")) {
+                if (!queryExecutor.cancel()) {
+                    System.out.println("No query is running.");
+                }
             }
             // Command: h or help - Display help
             else if (action.equals("h") || action.equals("help")) {
@@ -862,8 +1479,14 @@ public class SQLServerDemo {
             else {
                 System.out.println("-> Command not recognized. Type 'h' for help.");
             }
+        } catch (QueryExecutor.CancelledException e) {
+            System.err.println("⚠️ " + e.getMessage());
         } catch (SQLException e) {
             System.err.println("❌ SQL Execution Error: " + e.getMessage());
+        } catch (FileNotFoundException e) {
+            System.err.println("❌ Error: " + e.getMessage() + ". Snapshot commands need " + NFL_SQL_FILE + " or " + Snapshot.DEFAULT_FILE + ".");
+        } catch (IOException e) {
+            System.err.println("❌ Error: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("❌ An unexpected error occurred while processing command: " + e.getMessage());
             e.printStackTrace();
@@ -879,6 +1502,485 @@ public class SQLServerDemo {
         }
     }
 
+    // --- SNAPSHOT: Parse nfl.sql locally and write it out in binary columnar form ---
+    private static void exportSnapshot(String filename) throws IOException {
+        long start = System.nanoTime();
+        SqlDump dump = SqlDump.read(NFL_SQL_FILE);
+        LoadValidator.validate(dump, null); // same rows as the database, without rewriting the quarantine file
+        System.out.printf("-> Parsed and validated %s in %.0f ms%n", NFL_SQL_FILE, (System.nanoTime() - start) / 1e6);
+        exportSnapshot(filename, dump);
+    }
+
+    // Export an already validated dump (e.g. the one loadSqlFile just loaded)
+    private static void exportSnapshot(String filename, SqlDump dump) throws IOException {
+        long start = System.nanoTime();
+        if (filename.equals(Snapshot.DEFAULT_FILE)) {
+            // Nothing may read the old mapping (or caches built from it) while the file is replaced;
+            // if the export fails the old file is still intact and requireSnapshot maps it again
+            snapshot = null;
+            invalidateLocalCaches();
+        }
+        long bytes = Snapshot.export(dump, filename);
+
+        System.out.printf("✅ Wrote %d tables (%,d bytes) to %s in %.0f ms%n",
+            dump.tables.size(), bytes, filename, (System.nanoTime() - start) / 1e6);
+
+        // Re-map so later commands see the fresh data
+        if (filename.equals(Snapshot.DEFAULT_FILE)) {
+            snapshot = Snapshot.open(filename);
+        }
+    }
+
+    private static void displaySnapshotInfo() {
+        if (snapshot == null) {
+            System.out.println("No snapshot mapped. Use 'export-snapshot' to create " + Snapshot.DEFAULT_FILE + ".");
+            return;
+        }
+        System.out.printf("   | %-20s | %-10s | %-8s |%n", "TABLE", "ROWS", "COLUMNS");
+        System.out.println("---|----------------------+------------+----------|");
+        int rowCount = 0;
+        for (Snapshot.Table table : snapshot.tables()) {
+            rowCount++;
+            System.out.printf("%2d| %-20s | %-10d | %-8d |%n", rowCount, table.name, table.rowCount, table.columns.length);
+        }
+        System.out.println("--- End of Query ---");
+    }
+
+    // --- HELPER: Drop everything derived from the previous snapshot ---
+    private static void invalidateLocalCaches() {
+        snapshotPlayerNames = null;
+        rollups.clear();
+        rosterHistory = null;
+    }
+
+    // --- CAREER / FRANCHISE ROLLUPS ---
+    private static Rollup rollup(String tableName, String keyColumn) throws IOException {
+        Snapshot local = requireSnapshot();
+        return rollups.computeIfAbsent(tableName, name -> Rollup.build(local.table(name), keyColumn));
+    }
+
+    private static Rollup.Roster roster() throws IOException {
+        if (rosterHistory == null) {
+            rosterHistory = Rollup.buildRoster(requireSnapshot().table("roaster"));
+        }
+        return rosterHistory;
+    }
+
+    // Pool id of a key value (e.g. a player_id), or -1 if no row has it
+    private static int findStringId(Snapshot.Table table, String column, String value) {
+        int col = table.columnIndex(column);
+        for (int row = 0; row < table.rowCount; row++) {
+            if (!table.isNull(row, col) && table.getString(row, col).equalsIgnoreCase(value)) {
+                return table.getStringId(row, col);
+            }
+        }
+        return -1;
+    }
+
+    private static void displayCareer(String playerId) throws IOException {
+        Snapshot local = requireSnapshot();
+        int key = findStringId(local.table("player"), "player_id", playerId);
+        if (key < 0) {
+            System.err.println("❌ Error: Player ID '" + playerId + "' not found in the database.");
+            return;
+        }
+        System.out.println("Player: " + playerNames().get(key) + " (" + playerId + ")");
+
+        TreeMap<Integer, List<String>> teams = roster().teams(key);
+        System.out.println("Teams: " + (teams.isEmpty() ? "none on record" : teams.toString()));
+
+        printRollup("Regular Season (reg_player_stat)", rollup("reg_player_stat", "player_id"), key);
+        printRollup("Post Season (post_player_stat)", rollup("post_player_stat", "player_id"), key);
+    }
+
+    private static void displayFranchise(String teamAbbr) throws IOException {
+        Snapshot local = requireSnapshot();
+        int key = findStringId(local.table("team"), "team_abbr", teamAbbr);
+        if (key < 0) {
+            System.err.println("❌ Error: Team abbreviation '" + teamAbbr + "' not found. Use 'all_teams' to see abbreviations.");
+            return;
+        }
+        System.out.println("Team: " + teamAbbr.toUpperCase());
+
+        TreeMap<Integer, Integer> sizes = roster().sizes(key);
+        System.out.println("Roster size by season: " + (sizes.isEmpty() ? "none on record" : sizes.toString()));
+
+        printRollup("Regular Season (reg_team_stat)", rollup("reg_team_stat", "team"), key);
+        printRollup("Post Season (post_team_stat)", rollup("post_team_stat", "team"), key);
+    }
+
+    // One line per stat, one column per season plus the all-season total
+    private static void printRollup(String title, Rollup rollup, int key) {
+        System.out.println("\n" + title);
+        TreeMap<Integer, double[]> seasons = rollup.seasons(key);
+        if (seasons.isEmpty()) {
+            printHeader(new String[] { "stat", "total" });
+            printFooter(0);
+            return;
+        }
+
+        String[] labels = new String[seasons.size() + 2];
+        labels[0] = "stat";
+        int i = 1;
+        for (int season : seasons.keySet()) {
+            labels[i++] = String.valueOf(season);
+        }
+        labels[i] = "total";
+        printHeader(labels);
+
+        double[] total = rollup.total(key);
+        int rowCount = 0;
+        for (int c = 0; c < rollup.columns.length; c++) {
+            if (Double.isNaN(total[c])) {
+                continue; // NULL in every season
+            }
+            String[] row = new String[labels.length];
+            row[0] = rollup.columns[c] + (rollup.averaged[c] ? " (avg)" : "");
+            i = 1;
+            for (double[] season : seasons.values()) {
+                row[i++] = Double.isNaN(season[c]) ? null : formatNumber(season[c]);
+            }
+            row[i] = formatNumber(total[c]);
+            rowCount++;
+            printRow(rowCount, row);
+        }
+        printFooter(rowCount);
+    }
+
+    // --- METRICS ---
+    private static void displayMetrics() {
+        if (metrics.isEmpty()) {
+            System.out.println("No metrics defined. Add 'name = expression' lines to " + Metric.DEFAULT_FILE + ".");
+            return;
+        }
+        System.out.printf("   | %-20s | %-80s |%n", "METRIC", "EXPRESSION");
+        System.out.println("---|----------------------+----------------------------------------------------------------------------------|");
+        int rowCount = 0;
+        for (Metric metric : metrics.values()) {
+            rowCount++;
+            System.out.printf("%2d| %-20s | %-80s |%n", rowCount, metric.name, metric.expression);
+        }
+        System.out.println("--- End of Query ---");
+    }
+
+    private static void displayLocalMetric(Metric metric, String tableName, int season, int limit) {
+        Snapshot.Table table = snapshot.table(tableName);
+        if (table == null) {
+            System.err.println("❌ Error: Table '" + tableName + "' is not in the snapshot. Re-run 'export-snapshot'.");
+            return;
+        }
+        Metric.RowMetric value;
+        try {
+            value = metric.compile(table);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: " + e.getMessage() + ".");
+            return;
+        }
+        Set<Integer> seasons = new HashSet<>();
+        seasons.add(season);
+        Leaderboard.Result result = Leaderboard.compute(table, value, seasons, limit);
+
+        printHeader(new String[] { "display_name", metric.name });
+        int rowCount = 0;
+        for (Leaderboard.Entry entry : result.overall.ranked()) {
+            rowCount++;
+            printRow(rowCount, new String[] { rowLabel(table, entry.row), formatNumber(entry.value) });
+        }
+        printFooter(rowCount);
+    }
+
+    // --- LEADERBOARD: top K of a column or metric, per season and across seasons ---
+    private static void displayLeaderboard(String tableName, String columnOrMetric, int limit, Set<Integer> seasons) throws IOException {
+        Snapshot.Table table = requireSnapshot().table(tableName);
+        if (table == null) {
+            System.err.println("❌ Error: Unknown table '" + tableName + "'. Use 'snapshot' to see the tables.");
+            return;
+        }
+        if (table.columnIndex("season") < 0) {
+            System.err.println("❌ Error: Table '" + tableName + "' has no season column to rank by. Use a stat table such as reg_player_stat.");
+            return;
+        }
+
+        // Metric names win over columns; anything else must be a numeric column of the table
+        Metric metric = metrics.get(columnOrMetric.toLowerCase());
+        if (metric == null) {
+            metric = Metric.ofColumn(columnOrMetric);
+        }
+        Metric.RowMetric value;
+        try {
+            value = metric.compile(table);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: " + e.getMessage() + ".");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Leaderboard.Result result = Leaderboard.compute(table, value, seasons, limit);
+        long elapsed = System.nanoTime() - start;
+
+        for (Map.Entry<Integer, Leaderboard.TopK> season : result.bySeason.entrySet()) {
+            System.out.println("\nSeason " + season.getKey() + " - top " + limit + " by " + metric.name + " (" + table.name + ")");
+            printLeaderboard(table, season.getValue().ranked(), metric.name);
+        }
+        if (result.bySeason.size() > 1) {
+            System.out.println("\nAll selected seasons - top " + limit + " single-season " + metric.name);
+            printLeaderboard(table, result.overall.ranked(), metric.name);
+        }
+        if (result.bySeason.isEmpty()) {
+            System.out.println("   | No results found.");
+        }
+        System.out.printf("(%,d rows ranked in %.2f ms)%n", table.rowCount, elapsed / 1e6);
+    }
+
+    private static void printLeaderboard(Snapshot.Table table, List<Leaderboard.Entry> entries, String valueLabel) {
+        printHeader(new String[] { "name", "season", valueLabel });
+        int rowCount = 0;
+        for (Leaderboard.Entry entry : entries) {
+            rowCount++;
+            printRow(rowCount, new String[] { rowLabel(table, entry.row), String.valueOf(entry.season), formatNumber(entry.value) });
+        }
+        printFooter(rowCount);
+    }
+
+    // --- HELPER: Human-readable name of a stat row (player name, team, or first column) ---
+    private static String rowLabel(Snapshot.Table table, int row) {
+        int playerCol = table.columnIndex("player_id");
+        if (playerCol >= 0 && !table.isNull(row, playerCol)) {
+            String name = playerNames().get(table.getStringId(row, playerCol));
+            return name != null ? name : table.getString(row, playerCol);
+        }
+        int teamCol = table.columnIndex("team");
+        if (teamCol >= 0) {
+            return table.getString(row, teamCol);
+        }
+        return table.getString(row, 0);
+    }
+
+    // --- OFFICIATING (answered from the Officiating matrix when one is loaded, else by SQL) ---
+    // The matrix of the last load, waiting for the startup load first so the answer is not
+    // SQL just because the matrix is still being built; null after load_csv or a failed load
+    private static Officiating officiating() throws SQLException {
+        if (officiating == null && database != null && !database.isReady()) {
+            database.await();
+        }
+        return officiating;
+    }
+
+    // Referee with the most games in the season won by the away team; like the SQL, referees
+    // are grouped by name (so two officials with the same name are added up)
+    private static void displayRefAwayWin(Connection connection, String command, int season) throws SQLException {
+        Officiating matrix = officiating();
+        if (matrix == null) {
+            runQuery(connection, command, SQL_REF_AWAY_WIN, season);
+            return;
+        }
+        int s = matrix.seasonIndex(season);
+        Map<String, Integer> winsByName = new LinkedHashMap<>();
+        for (int r = 0; s >= 0 && r < matrix.refIds.length; r++) {
+            winsByName.merge(matrix.refNames[r], matrix.awayWins(r, s), Integer::sum);
+        }
+        String best = null;
+        int bestWins = 0;
+        for (Map.Entry<String, Integer> entry : winsByName.entrySet()) {
+            if (entry.getValue() > bestWins) {
+                best = entry.getKey();
+                bestWins = entry.getValue();
+            }
+        }
+        printHeader(new String[] { "official_name", "gamesOfficiatedAwayWin" });
+        if (best != null) {
+            printRow(1, new String[] { best, String.valueOf(bestWins) });
+        }
+        printFooter(best != null ? 1 : 0);
+    }
+
+    // Team's penalties, with the referee(s) who worked the most of its games that season
+    private static void displayRefPenalties(Connection connection, String command, String teamAbbr, int season) throws SQLException {
+        Officiating matrix = officiating();
+        if (matrix == null) {
+            runQuery(connection, command, SQL_REF_PENALTIES, teamAbbr, teamAbbr, season, teamAbbr, season);
+            return;
+        }
+        int t = matrix.teamIndex(teamAbbr);
+        int s = matrix.seasonIndex(season);
+        printHeader(new String[] { "team_abbr", "penalties", "official_name", "max_games" });
+        if (t < 0 || s < 0 || matrix.penalties(t, s) == Officiating.NO_PENALTIES) {
+            printFooter(0);
+            return;
+        }
+
+        int maxGames = 0;
+        for (int r = 0; r < matrix.refIds.length; r++) {
+            maxGames = Math.max(maxGames, matrix.games(r, t, s));
+        }
+        int penalties = matrix.penalties(t, s);
+        int rowCount = 0;
+        for (int r : refsByName(matrix)) {
+            if (maxGames > 0 && matrix.games(r, t, s) == maxGames) {
+                printRow(++rowCount, new String[] {
+                    matrix.teams[t], penalties == Officiating.NULL_PENALTIES ? null : String.valueOf(penalties),
+                    matrix.refNames[r], String.valueOf(maxGames)
+                });
+            }
+        }
+        printFooter(rowCount);
+    }
+
+    // One row per referee who worked the team's games: overall, home and away record
+    private static void displayRefSplits(Connection connection, String command, String teamAbbr, int season) throws SQLException {
+        Officiating matrix = officiating();
+        if (matrix == null) {
+            System.out.println("Team: " + teamAbbr + " (" + season + ")");
+            runQuery(connection, command, SQL_REF_SPLITS, teamAbbr, teamAbbr, teamAbbr, teamAbbr, season);
+            return;
+        }
+        int t = matrix.teamIndex(teamAbbr);
+        if (t < 0) {
+            System.err.println("❌ Error: Team abbreviation '" + teamAbbr + "' not found. Use 'all_teams' to see abbreviations.");
+            return;
+        }
+        int s = matrix.seasonIndex(season);
+        System.out.println("Team: " + matrix.teams[t] + " (" + season + ")");
+
+        List<Integer> refs = new ArrayList<>();
+        for (int r = 0; s >= 0 && r < matrix.refIds.length; r++) {
+            if (matrix.games(r, t, s) > 0) {
+                refs.add(r);
+            }
+        }
+        refs.sort((a, b) -> matrix.games(b, t, s) != matrix.games(a, t, s)
+            ? matrix.games(b, t, s) - matrix.games(a, t, s)
+            : matrix.refNames[a].compareTo(matrix.refNames[b]));
+
+        printHeader(new String[] { "official_name", "games", "wins", "losses", "home_w_l", "away_w_l", "win_pct" });
+        for (int i = 0; i < refs.size(); i++) {
+            int r = refs.get(i);
+            printRow(i + 1, splitRow(matrix, matrix.refNames[r], t, s, r));
+        }
+        printFooter(refs.size());
+    }
+
+    // One row per team the referee worked for: that team's record in those games. Like the SQL,
+    // every official whose id or name matches is included.
+    private static void displayRefRecord(Connection connection, String command, String referee, int season) throws SQLException {
+        Officiating matrix = officiating();
+        if (matrix == null) {
+            System.out.println("Referee: " + referee + " (" + season + ")");
+            runQuery(connection, command, SQL_REF_RECORD, referee, referee, season);
+            return;
+        }
+        List<Integer> matches = new ArrayList<>();
+        for (int i = 0; i < matrix.refIds.length; i++) {
+            if (String.valueOf(matrix.refIds[i]).equals(referee) || matrix.refNames[i].equalsIgnoreCase(referee)) {
+                matches.add(i);
+            }
+        }
+        if (matches.isEmpty()) {
+            System.err.println("❌ Error: Referee '" + referee + "' not found. Known referees:");
+            for (int i : refsByName(matrix)) {
+                System.err.println("   " + matrix.refIds[i] + "  " + matrix.refNames[i]);
+            }
+            return;
+        }
+        int s = matrix.seasonIndex(season);
+        System.out.println("Referee: " + matrix.refNames[matches.get(0)] + " (" + season + ")");
+        int[] refs = matches.stream().mapToInt(Integer::intValue).toArray();
+
+        // Same order as the SQL (ORDER BY team)
+        List<Integer> teams = new ArrayList<>();
+        for (int t = 0; s >= 0 && t < matrix.teams.length; t++) {
+            teams.add(t);
+        }
+        teams.sort((a, b) -> matrix.teams[a].compareTo(matrix.teams[b]));
+
+        printHeader(new String[] { "team", "games", "wins", "losses", "home_w_l", "away_w_l", "win_pct" });
+        int rowCount = 0;
+        for (int t : teams) {
+            String[] row = splitRow(matrix, matrix.teams[t], t, s, refs);
+            if (!row[1].equals("0")) {
+                printRow(++rowCount, row);
+            }
+        }
+        printFooter(rowCount);
+    }
+
+    // Team t's record in season s over the games worked by any of the referees
+    private static String[] splitRow(Officiating matrix, String label, int t, int s, int... refs) {
+        int[] totals = new int[Officiating.METRICS];
+        for (int r : refs) {
+            for (int metric = 0; metric < totals.length; metric++) {
+                totals[metric] += matrix.count(r, t, s, metric);
+            }
+        }
+        int games = totals[Officiating.HOME_GAMES] + totals[Officiating.AWAY_GAMES];
+        int wins = totals[Officiating.HOME_WINS] + totals[Officiating.AWAY_WINS];
+        return new String[] {
+            label,
+            String.valueOf(games),
+            String.valueOf(wins),
+            String.valueOf(totals[Officiating.HOME_LOSSES] + totals[Officiating.AWAY_LOSSES]),
+            totals[Officiating.HOME_WINS] + "-" + totals[Officiating.HOME_LOSSES],
+            totals[Officiating.AWAY_WINS] + "-" + totals[Officiating.AWAY_LOSSES],
+            String.format("%.3f", (double) wins / games)
+        };
+    }
+
+    private static List<Integer> refsByName(Officiating matrix) {
+        List<Integer> refs = new ArrayList<>();
+        for (int r = 0; r < matrix.refIds.length; r++) {
+            refs.add(r);
+        }
+        refs.sort((a, b) -> matrix.refNames[a].compareTo(matrix.refNames[b]));
+        return refs;
+    }
+
+    // --- HELPER: The mapped snapshot, exporting it from nfl.sql first if there is none ---
+    private static Snapshot requireSnapshot() throws IOException {
+        if (snapshot == null) {
+            if (new File(Snapshot.DEFAULT_FILE).exists()) {
+                snapshot = Snapshot.open(Snapshot.DEFAULT_FILE);
+            } else {
+                System.out.println("-> No local snapshot yet; building " + Snapshot.DEFAULT_FILE + " from " + NFL_SQL_FILE + "...");
+                exportSnapshot(Snapshot.DEFAULT_FILE);
+            }
+        }
+        return snapshot;
+    }
+
+    private static Map<Integer, String> playerNames() {
+        if (snapshotPlayerNames == null) {
+            Snapshot.Table player = snapshot.table("player");
+            int idCol = player.columnIndex("player_id");
+            int nameCol = player.columnIndex("display_name");
+            Map<Integer, String> names = new HashMap<>();
+            for (int row = 0; row < player.rowCount; row++) {
+                names.put(player.getStringId(row, idCol), player.getString(row, nameCol));
+            }
+            snapshotPlayerNames = names;
+        }
+        return snapshotPlayerNames;
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.format("%.4f", value);
+    }
+
+    // --- HELPER: Column names of a table, from the driver's result set metadata ---
+    private static Set<String> tableColumns(Connection connection, String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT TOP 0 * FROM " + table)) {
+            ResultSetMetaData rsmd = rs.getMetaData();
+            for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+                columns.add(rsmd.getColumnName(i).toLowerCase());
+            }
+        }
+        return columns;
+    }
+
     // --- HELPER: Get player name for better error reporting ---
     private static String getPlayerName(Connection connection, String playerId) throws SQLException {
         String sql = "SELECT display_name FROM player WHERE player_id = '" + playerId + "'";
@@ -913,6 +2015,8 @@ public class SQLServerDemo {
         System.out.printf(format, "win_pct <team name>", "[WIN_PCT]", "What was the regular season win percentage of a given team (prompts for year).");
         System.out.printf(format, "host <stadium name>", "[HOST]", "Number of games hosted by a specific stadium in the postseason (prompts for year).");
         System.out.printf(format, "ref_penalties <team abbr>", "[REF_PEN]", "Get team penalties and their most frequent referee (prompts for year).");
+        System.out.printf(format, "ref_splits <team abbr>", "[REF_SPLITS]", "Team's overall/home/away record under each referee (prompts for year).");
+        System.out.printf(format, "ref_record <official id|name>", "[REF_REC]", "Every team's record in games worked by one referee (prompts for year).");
         
         // Print statistical ranking/filtering commands
         System.out.printf(format, "top <no of team>", "[TOP]", "Get top N teams in regular season points scored.");
@@ -933,6 +2037,32 @@ public class SQLServerDemo {
         System.out.printf(format, "plyr_yds <max yds> <division>", "[PLYR_YDS]", "Players on a top 2 division team with total yards < max yards (prompts for year).");
         System.out.printf(format, "top_half_low_div", "[HLD]", "Teams in the top half of the league in points but in the bottom half of their division (prompts for year).");
 
+        // Print local snapshot commands
+        System.out.printf(format, "export-snapshot [file]", "[EXPORT_SNAPSHOT]", "Write every table of nfl.sql to a binary snapshot (default: nfl.snap).");
+        System.out.printf(format, "snapshot", "[SNAPSHOT]", "List the tables and row counts in the mapped snapshot.");
+
+        // Print diagnostics commands
+        System.out.printf(format, "slow_log [ms|off]", "[SLOW_LOG]", "Show or set the threshold above which queries are logged with their execution plan.");
+        System.out.printf(format, "slow_queries [n]", "[SLOW_Q]", "List the N slowest logged queries (default 10).");
+
+        System.out.printf(format, "warmup [season,...]", "[WARMUP]", "Pre-run the season-scoped commands in the background (default: " + DEFAULT_SEASON + ").");
+        System.out.printf(format, "clear_cache", "[CLEAR_CACHE]", "Forget warmed query results so the next run goes to the database.");
+
+        // Print derived-metric commands
+        System.out.printf(format, "metrics", "[METRICS]", "List the derived metrics defined in " + Metric.DEFAULT_FILE + ".");
+        System.out.printf(format, "metric <name> [k]", "[METRIC]", "Top K players by a derived metric (prompts for season type and year).");
+
+        System.out.printf(format, "leaderboard <table> <stat> <k>", "[LB]", "Top K rows of a stat column or metric per season and overall; optional [seasons] (local).");
+
+        // Print cross-season commands
+        System.out.printf(format, "career <player id>", "[CAREER]", "Player stat totals for every season and overall, with team history (local).");
+        System.out.printf(format, "franchise <team abbr>", "[FRANCHISE]", "Team stat totals for every season and overall, with roster sizes (local).");
+        System.out.printf(format, "reload", "[RELOAD]", "Re-run nfl.sql, rebuild the snapshot and clear all cached results.");
+        System.out.printf(format, "load_csv <table> <file>", "[LOAD_CSV]", "Insert the rows of a CSV or gzip-compressed .csv.gz file into a table.");
+        System.out.printf(format, "timeout [seconds]", "[TIMEOUT]", "Show or set the query timeout (0 = none). Default: " + QueryExecutor.DEFAULT_TIMEOUT_SECONDS + " s.");
+        System.out.printf(format, "cancel | Ctrl-C", "[CANCEL]", "Abort the running query; the session and its caches are kept.");
+        System.out.printf(format, "status", "[STATUS]", "Show startup progress (connection and data load) and local cache state.");
+
         // Print help/quit
         System.out.printf(format, "h | help", "[H]", "Display this help screen.");
         System.out.printf(format, "q | quit", "[Q]", "Exit the program.");
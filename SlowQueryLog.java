@@ -0,0 +1,207 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rolling log of queries that took longer than a threshold. Each entry holds the
+ * command, timings, row count, SQL, bound parameters and the estimated execution
+ * plan (SET SHOWPLAN_XML ON, so the slow query is never run a second time).
+ * Queries that time out, are cancelled or fail are logged too once they pass the
+ * threshold (timeouts always), marked in the header, e.g. "week_scores [timed out]".
+ *
+ * Entry format (the "===" header line is what printWorst reads back):
+ *   === 2024-01-07T20:15:03 | 1532 ms | ref_penalties KC
+ *   execute_ms=1490 fetch_ms=42 rows=1
+ *   params: [KC, KC, 2023, KC, 2023]
+ *   sql:
+ *   ...
+ *   plan:
+ *   <ShowPlanXML ...>
+ */
+public class SlowQueryLog {
+
+    public static final String LOG_FILE = "slow_queries.log";
+    public static final long DEFAULT_THRESHOLD_MS = 1000;
+
+    // Rotate slow_queries.log -> .1 -> .2 -> .3 once it passes this size
+    private static final long MAX_LOG_BYTES = 1024 * 1024;
+    private static final int MAX_ROTATED_FILES = 3;
+
+    private static final String HEADER = "=== ";
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private volatile long thresholdMs;
+
+    public SlowQueryLog(long thresholdMs) {
+        this.thresholdMs = thresholdMs;
+    }
+
+    public long getThresholdMs() {
+        return thresholdMs;
+    }
+
+    // Negative disables logging
+    public void setThresholdMs(long thresholdMs) {
+        this.thresholdMs = thresholdMs;
+    }
+
+    // A query that failed with a timeout is always logged; anything else only past the threshold
+    private boolean shouldLog(long totalNanos, SQLException error) {
+        if (thresholdMs < 0) {
+            return false;
+        }
+        return totalNanos / 1_000_000 >= thresholdMs || (error != null && error.getCause() instanceof SQLTimeoutException);
+    }
+
+    /**
+     * Called on the console thread after every query (error is null if it succeeded);
+     * only the ones shouldLog() accepts are written out. executeNanos is the time
+     * to the first result, fetchNanos the time spent reading and printing rows.
+     */
+    public void record(Connection connection, QueryExecutor executor, String command, String sql, Object[] params,
+                       long executeNanos, long fetchNanos, int rows, SQLException error) {
+        if (!shouldLog(executeNanos + fetchNanos, error)) {
+            return;
+        }
+        long totalMs = (executeNanos + fetchNanos) / 1_000_000;
+        String outcome = error == null ? null
+            : error instanceof QueryExecutor.CancelledException ? "cancelled"
+            : error.getCause() instanceof SQLTimeoutException ? "timed out" : "failed";
+
+        String plan = capturePlan(connection, executor, sql, params);
+
+        synchronized (this) {
+            try {
+                rotateIfNeeded();
+                try (PrintWriter out = new PrintWriter(new FileWriter(LOG_FILE, StandardCharsets.UTF_8, true))) {
+                    out.println(HEADER + LocalDateTime.now().format(TIMESTAMP)
+                        + " | " + totalMs + " ms | " + command + (outcome == null ? "" : " [" + outcome + "]"));
+                    if (error == null) {
+                        out.println("execute_ms=" + executeNanos / 1_000_000 + " fetch_ms=" + fetchNanos / 1_000_000 + " rows=" + rows);
+                    } else {
+                        out.println("execute_ms=" + executeNanos / 1_000_000 + " fetch_ms=" + fetchNanos / 1_000_000 + " error: " + error.getMessage());
+                    }
+                    out.println("params: " + Arrays.toString(params));
+                    out.println("sql:");
+                    out.println(sql);
+                    out.println("plan:");
+                    out.println(plan);
+                    out.println();
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Warning: Could not write " + LOG_FILE + ": " + e.getMessage());
+            }
+        }
+        System.out.println("⚠️ " + (outcome == null ? "Slow" : "Slow " + outcome) + " query (" + totalMs + " ms) logged to " + LOG_FILE);
+    }
+
+    /**
+     * Ask the server for the estimated plan with SET SHOWPLAN_XML ON: the query is
+     * compiled but not run again. The request goes through the executor, so it has
+     * the query timeout and 'cancel' / Ctrl-C reach it.
+     */
+    static String capturePlan(Connection connection, QueryExecutor executor, String sql, Object[] params) {
+        try (Statement settings = connection.createStatement()) {
+            settings.execute("SET SHOWPLAN_XML ON");
+            try (PreparedStatement pStmt = connection.prepareStatement(sql)) {
+                SQLServerDemo.bindParameters(pStmt, params);
+                String plan = executor.execute(pStmt, () -> {
+                    String found = null;
+                    boolean isResultSet = pStmt.execute();
+                    while (isResultSet || pStmt.getUpdateCount() != -1) {
+                        if (isResultSet) {
+                            try (ResultSet rs = pStmt.getResultSet()) {
+                                boolean isPlan = rs.getMetaData().getColumnCount() == 1
+                                    && rs.getMetaData().getColumnLabel(1).contains("Showplan");
+                                while (rs.next()) {
+                                    if (isPlan) {
+                                        found = rs.getString(1);
+                                    }
+                                }
+                            }
+                        }
+                        isResultSet = pStmt.getMoreResults();
+                    }
+                    return found;
+                });
+                return plan == null ? "(no plan returned)" : plan;
+            } finally {
+                settings.execute("SET SHOWPLAN_XML OFF");
+            }
+        } catch (SQLException e) {
+            return "(plan unavailable: " + e.getMessage() + ")";
+        }
+    }
+
+    private static void rotateIfNeeded() throws IOException {
+        File current = new File(LOG_FILE);
+        if (!current.exists() || current.length() < MAX_LOG_BYTES) {
+            return;
+        }
+        new File(LOG_FILE + "." + MAX_ROTATED_FILES).delete();
+        for (int i = MAX_ROTATED_FILES - 1; i >= 1; i--) {
+            File older = new File(LOG_FILE + "." + i);
+            if (older.exists() && !older.renameTo(new File(LOG_FILE + "." + (i + 1)))) {
+                throw new IOException("Could not rotate " + older.getName());
+            }
+        }
+        if (!current.renameTo(new File(LOG_FILE + ".1"))) {
+            throw new IOException("Could not rotate " + LOG_FILE);
+        }
+    }
+
+    // --- List the slowest entries across the current and rotated log files ---
+    public synchronized void printWorst(int limit) {
+        List<String[]> entries = new ArrayList<>(); // {time, ms, command}
+        for (int i = 0; i <= MAX_ROTATED_FILES; i++) {
+            File file = new File(i == 0 ? LOG_FILE : LOG_FILE + "." + i);
+            if (!file.exists()) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(HEADER)) {
+                        String[] parts = line.substring(HEADER.length()).split(" \\| ", 3);
+                        if (parts.length == 3) {
+                            entries.add(new String[] { parts[0], parts[1].replace(" ms", ""), parts[2] });
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Warning: Could not read " + file.getName() + ": " + e.getMessage());
+            }
+        }
+
+        if (entries.isEmpty()) {
+            System.out.println("No slow queries logged (threshold: " + thresholdMs + " ms).");
+            return;
+        }
+
+        entries.sort((a, b) -> Long.compare(Long.parseLong(b[1]), Long.parseLong(a[1])));
+
+        System.out.printf("   | %-10s | %-19s | %-40s |%n", "TOTAL_MS", "LOGGED_AT", "COMMAND");
+        System.out.println("---|------------+---------------------+------------------------------------------|");
+        int rowCount = 0;
+        for (String[] entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            rowCount++;
+            System.out.printf("%2d| %-10s | %-19s | %-40s |%n", rowCount, entry[1], entry[0], entry[2]);
+        }
+        System.out.println("--- End of Query --- (full SQL and plans in " + LOG_FILE + ")");
+    }
+}
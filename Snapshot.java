@@ -0,0 +1,355 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Versioned binary, column-oriented copy of every table in the dump.
+ *
+ * Layout (big-endian, every section 8-byte aligned):
+ *   header    : magic, version, table count, pool size, pool offsets position, pool bytes position
+ *   directory : per table  -> name id, row count, column count, padding
+ *               per column -> name id, type, data position, null bitmap position
+ *   pool      : int[poolSize + 1] byte offsets followed by the UTF-8 bytes of every distinct string
+ *   columns   : int[rows] (INT), double[rows] (DOUBLE) or int[rows] pool ids (STRING),
+ *               each followed by a long[] null bitmap
+ *
+ * Strings (table/column names, player ids, team abbreviations, ...) are dictionary
+ * encoded into the shared pool, so a value like 'KC' is stored once. Reading maps
+ * the file with FileChannel.map and serves values straight from the mapping.
+ */
+public class Snapshot {
+
+    public static final String DEFAULT_FILE = "nfl.snap";
+
+    private static final int MAGIC = 0x4E464C53; // "NFLS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int TABLE_ENTRY_BYTES = 16;
+    private static final int COLUMN_ENTRY_BYTES = 24;
+
+    private final MappedByteBuffer buffer;
+    private final int poolSize;
+    private final long poolOffsetsPos;
+    private final long poolBytesPos;
+    private final String[] decodedStrings; // filled lazily, on first access of each pool entry
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+
+    // --- Read-only view of one mapped table ---
+    public class Table {
+        final String name;
+        final int rowCount;
+        final String[] columns;
+        final int[] types;
+        private final long[] dataPos;
+        private final long[] nullPos;
+
+        private Table(String name, int rowCount, int columnCount) {
+            this.name = name;
+            this.rowCount = rowCount;
+            this.columns = new String[columnCount];
+            this.types = new int[columnCount];
+            this.dataPos = new long[columnCount];
+            this.nullPos = new long[columnCount];
+        }
+
+        public int columnIndex(String column) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equalsIgnoreCase(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        public boolean isNull(int row, int col) {
+            long word = buffer.getLong((int) (nullPos[col] + (row >>> 6) * 8L));
+            return (word & (1L << (row & 63))) != 0;
+        }
+
+        public int getInt(int row, int col) {
+            return buffer.getInt((int) (dataPos[col] + row * 4L));
+        }
+
+        public double getDouble(int row, int col) {
+            if (types[col] == SqlDump.TYPE_INT) {
+                return getInt(row, col);
+            }
+            return buffer.getDouble((int) (dataPos[col] + row * 8L));
+        }
+
+        // Dictionary id of a STRING value; equal strings share an id
+        public int getStringId(int row, int col) {
+            return buffer.getInt((int) (dataPos[col] + row * 4L));
+        }
+
+        public String getString(int row, int col) {
+            if (isNull(row, col)) {
+                return null;
+            }
+            switch (types[col]) {
+                case SqlDump.TYPE_INT:
+                    return Integer.toString(getInt(row, col));
+                case SqlDump.TYPE_DOUBLE:
+                    return Double.toString(getDouble(row, col));
+                default:
+                    return poolString(getStringId(row, col));
+            }
+        }
+    }
+
+    // Every count and position is checked against the mapping before use, so a truncated
+    // or damaged file is reported as an IOException instead of failing on first access
+    private Snapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        long capacity = buffer.capacity();
+        check(capacity >= HEADER_BYTES, "file is shorter than the header");
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an NFL snapshot file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " (expected " + VERSION + ")");
+        }
+        int tableCount = buffer.getInt(8);
+        this.poolSize = buffer.getInt(12);
+        this.poolOffsetsPos = buffer.getLong(16);
+        this.poolBytesPos = buffer.getLong(24);
+        check(tableCount >= 0 && poolSize >= 0, "negative table or pool count");
+        check(poolOffsetsPos >= HEADER_BYTES && poolOffsetsPos + 4L * (poolSize + 1) <= poolBytesPos && poolBytesPos <= capacity,
+            "pool outside the file");
+
+        // Pool offsets must be ascending and end inside the file
+        int previous = 0;
+        for (int id = 0; id <= poolSize; id++) {
+            int offset = buffer.getInt((int) (poolOffsetsPos + id * 4L));
+            check(offset >= previous && (id > 0 || offset == 0), "pool offset " + id + " out of order");
+            previous = offset;
+        }
+        check(poolBytesPos + previous <= capacity, "pool strings outside the file");
+        this.decodedStrings = new String[poolSize];
+
+        long pos = HEADER_BYTES;
+        for (int t = 0; t < tableCount; t++) {
+            check(pos + TABLE_ENTRY_BYTES <= poolOffsetsPos, "directory overlaps the pool");
+            String name = checkedPoolString(buffer.getInt((int) pos));
+            int rowCount = buffer.getInt((int) pos + 4);
+            int columnCount = buffer.getInt((int) pos + 8);
+            check(rowCount >= 0 && columnCount >= 0 && pos + TABLE_ENTRY_BYTES + (long) COLUMN_ENTRY_BYTES * columnCount <= poolOffsetsPos,
+                "bad directory entry for table " + name);
+            Table table = new Table(name, rowCount, columnCount);
+            pos += TABLE_ENTRY_BYTES;
+            for (int c = 0; c < columnCount; c++) {
+                table.columns[c] = checkedPoolString(buffer.getInt((int) pos));
+                table.types[c] = buffer.getInt((int) pos + 4);
+                table.dataPos[c] = buffer.getLong((int) pos + 8);
+                table.nullPos[c] = buffer.getLong((int) pos + 16);
+                String column = name + "." + table.columns[c];
+                check(table.types[c] >= SqlDump.TYPE_INT && table.types[c] <= SqlDump.TYPE_STRING, "unknown type for " + column);
+                check(table.dataPos[c] >= poolBytesPos && table.dataPos[c] + columnBytes(table.types[c], rowCount) <= capacity
+                    && table.nullPos[c] >= poolBytesPos && table.nullPos[c] + bitmapBytes(rowCount) <= capacity,
+                    "data of " + column + " outside the file");
+                pos += COLUMN_ENTRY_BYTES;
+            }
+            tables.put(name, table);
+        }
+    }
+
+    private static void check(boolean valid, String problem) throws IOException {
+        if (!valid) {
+            throw new IOException("corrupt snapshot: " + problem);
+        }
+    }
+
+    private String checkedPoolString(int id) throws IOException {
+        check(id >= 0 && id < poolSize, "string id " + id + " outside the pool");
+        return poolString(id);
+    }
+
+    public Table table(String name) {
+        return tables.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public List<Table> tables() {
+        return new ArrayList<>(tables.values());
+    }
+
+    String poolString(int id) {
+        String value = decodedStrings[id];
+        if (value == null) {
+            int start = buffer.getInt((int) (poolOffsetsPos + id * 4L));
+            int end = buffer.getInt((int) (poolOffsetsPos + (id + 1) * 4L));
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) (poolBytesPos + start));
+            view.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            decodedStrings[id] = value;
+        }
+        return value;
+    }
+
+    // --- Map an existing snapshot file (no parsing of row data) ---
+    public static Snapshot open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            return new Snapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // --- Write every table of a parsed dump; returns the file size in bytes ---
+    // Written to filename.tmp and moved into place, so an existing file is never half-written
+    // (callers drop their mapping of it first, see SQLServerDemo.exportSnapshot)
+    public static long export(SqlDump dump, String filename) throws IOException {
+        // 1. Build the string dictionary
+        Map<String, Integer> pool = new LinkedHashMap<>();
+        for (SqlDump.Table table : dump.tables.values()) {
+            intern(pool, table.name);
+            for (int c = 0; c < table.columns.size(); c++) {
+                intern(pool, table.columns.get(c));
+                if (table.types.get(c) == SqlDump.TYPE_STRING) {
+                    for (String[] row : table.rows) {
+                        if (row[c] != null) {
+                            intern(pool, row[c]);
+                        }
+                    }
+                }
+            }
+        }
+        List<byte[]> poolBytes = new ArrayList<>(pool.size());
+        long poolByteCount = 0;
+        for (String value : pool.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            poolBytes.add(bytes);
+            poolByteCount += bytes.length;
+        }
+
+        // 2. Lay out the sections
+        long pos = HEADER_BYTES;
+        for (SqlDump.Table table : dump.tables.values()) {
+            pos += TABLE_ENTRY_BYTES + (long) COLUMN_ENTRY_BYTES * table.columns.size();
+        }
+        long poolOffsetsPos = align(pos);
+        long poolBytesPos = align(poolOffsetsPos + 4L * (pool.size() + 1));
+        long dataStart = align(poolBytesPos + poolByteCount);
+
+        long size = dataStart;
+        for (SqlDump.Table table : dump.tables.values()) {
+            for (int c = 0; c < table.columns.size(); c++) {
+                size = align(size + columnBytes(table.types.get(c), table.rows.size()));
+                size += bitmapBytes(table.rows.size());
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot would exceed 2 GB");
+        }
+
+        // 3. Fill the buffer
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(0, MAGIC);
+        out.putInt(4, VERSION);
+        out.putInt(8, dump.tables.size());
+        out.putInt(12, pool.size());
+        out.putLong(16, poolOffsetsPos);
+        out.putLong(24, poolBytesPos);
+
+        int offset = 0;
+        int id = 0;
+        for (byte[] bytes : poolBytes) {
+            out.putInt((int) (poolOffsetsPos + id * 4L), offset);
+            out.position((int) (poolBytesPos + offset));
+            out.put(bytes);
+            offset += bytes.length;
+            id++;
+        }
+        out.putInt((int) (poolOffsetsPos + id * 4L), offset);
+
+        int dirPos = HEADER_BYTES;
+        long dataPos = dataStart;
+        for (SqlDump.Table table : dump.tables.values()) {
+            int rows = table.rows.size();
+            out.putInt(dirPos, pool.get(table.name));
+            out.putInt(dirPos + 4, rows);
+            out.putInt(dirPos + 8, table.columns.size());
+            dirPos += TABLE_ENTRY_BYTES;
+
+            for (int c = 0; c < table.columns.size(); c++) {
+                int type = table.types.get(c);
+                long nullPos = align(dataPos + columnBytes(type, rows));
+                out.putInt(dirPos, pool.get(table.columns.get(c)));
+                out.putInt(dirPos + 4, type);
+                out.putLong(dirPos + 8, dataPos);
+                out.putLong(dirPos + 16, nullPos);
+                dirPos += COLUMN_ENTRY_BYTES;
+
+                for (int r = 0; r < rows; r++) {
+                    String value = table.rows.get(r)[c];
+                    if (value == null) {
+                        int word = (int) (nullPos + (r >>> 6) * 8L);
+                        out.putLong(word, out.getLong(word) | (1L << (r & 63)));
+                        continue;
+                    }
+                    try {
+                        if (type == SqlDump.TYPE_INT) {
+                            out.putInt((int) (dataPos + r * 4L), Integer.parseInt(value));
+                        } else if (type == SqlDump.TYPE_DOUBLE) {
+                            out.putDouble((int) (dataPos + r * 8L), Double.parseDouble(value));
+                        } else {
+                            out.putInt((int) (dataPos + r * 4L), pool.get(value));
+                        }
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Bad numeric value '" + value + "' in " + table.name + "." + table.columns.get(c), e);
+                    }
+                }
+                dataPos = nullPos + bitmapBytes(rows);
+            }
+        }
+
+        out.position(0);
+        Path path = Paths.get(filename);
+        Path temp = Paths.get(filename + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp); // only left over if writing or moving failed
+        }
+        return size;
+    }
+
+    private static void intern(Map<String, Integer> pool, String value) {
+        pool.putIfAbsent(value, pool.size());
+    }
+
+    private static long columnBytes(int type, int rows) {
+        return (type == SqlDump.TYPE_DOUBLE ? 8L : 4L) * rows;
+    }
+
+    private static long bitmapBytes(int rows) {
+        return ((rows + 63) / 64) * 8L;
+    }
+
+    private static long align(long pos) {
+        return (pos + 7) & ~7L;
+    }
+}
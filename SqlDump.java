@@ -0,0 +1,313 @@
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-memory copy of an nfl.sql style dump: the column list of every CREATE TABLE
+ * and the raw values of every INSERT ... VALUES tuple. Nothing here talks to the
+ * database, so it can be used offline (e.g. to build a binary snapshot).
+ */
+public class SqlDump {
+
+    // --- Column types as stored locally ---
+    public static final int TYPE_INT = 1;     // INTEGER
+    public static final int TYPE_DOUBLE = 2;  // DECIMAL(p, s)
+    public static final int TYPE_STRING = 3;  // VARCHAR, TEXT, DATETIME, ...
+
+    public static class Table {
+        final String name;
+        final List<String> columns = new ArrayList<>();
+        final List<Integer> types = new ArrayList<>();
+        // Raw values in CREATE TABLE column order; null means SQL NULL
+        final List<String[]> rows = new ArrayList<>();
+        // Column index of the PRIMARY KEY column, or -1
+        int primaryKey = -1;
+        // Column index -> {table, column} of its REFERENCES clause
+        final Map<Integer, String[]> references = new LinkedHashMap<>();
+        // INSERT tuples whose value count does not match their column list
+        final List<Malformed> malformed = new ArrayList<>();
+
+        public Table(String name) {
+            this.name = name;
+        }
+
+        int columnIndex(String column) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).equalsIgnoreCase(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // --- A tuple as written, with the column list of its INSERT ---
+    public static class Malformed {
+        final List<String> columns;
+        final List<String> values;
+
+        Malformed(List<String> columns, List<String> values) {
+            this.columns = columns;
+            this.values = values;
+        }
+    }
+
+    private static final int INPUT_BUFFER_BYTES = 64 * 1024;
+
+    // Tables in the order they are created in the dump
+    final Map<String, Table> tables = new LinkedHashMap<>();
+    // Every statement that is not an INSERT (use, drop, create), in file order; all of them
+    // precede the data, except CREATE TABLE (see addStatement), so they can run before the rows
+    final List<String> schema = new ArrayList<>();
+    // True if reading ended at the STOP EXECUTION marker
+    boolean stopped = false;
+    private boolean sawInsert = false;
+
+    public Table table(String name) {
+        return tables.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    // --- Read a dump using the same statement splitting rules as loadSqlFile ---
+    public static SqlDump read(String filename) throws IOException {
+        SqlDump dump = new SqlDump();
+        StringBuilder currentStatement = new StringBuilder();
+
+        try (Scanner scanner = new Scanner(openInput(filename), "UTF-8")) {
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                String trimmed = line.trim();
+
+                if (trimmed.equalsIgnoreCase("-- --- STOP EXECUTION HERE ---")) {
+                    dump.stopped = true;
+                    break;
+                }
+                if (trimmed.startsWith("--") || trimmed.startsWith("/*") || trimmed.startsWith("*")) {
+                    continue; // skip comments
+                }
+
+                currentStatement.append(line).append("\n");
+
+                if (trimmed.endsWith(";")) {
+                    String sql = currentStatement.toString().trim();
+                    sql = sql.substring(0, sql.length() - 1);
+                    try {
+                        dump.addStatement(sql);
+                    } catch (IllegalStateException e) {
+                        throw new IOException(filename + ": " + e.getMessage(), e);
+                    }
+                    currentStatement.setLength(0);
+                }
+            }
+        }
+        return dump;
+    }
+
+    // --- Open a data file; .gz files (or x when only x.gz exists) are decompressed while reading ---
+    public static InputStream openInput(String filename) throws IOException {
+        File file = new File(filename);
+        if (!file.exists() && new File(filename + ".gz").exists()) {
+            file = new File(filename + ".gz");
+        }
+        if (!file.exists()) {
+            throw new FileNotFoundException("File not found: " + filename);
+        }
+        InputStream in = new BufferedInputStream(new FileInputStream(file), INPUT_BUFFER_BYTES);
+        if (file.getName().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            return new GZIPInputStream(in, INPUT_BUFFER_BYTES);
+        }
+        return in;
+    }
+
+    void addStatement(String sql) {
+        String upper = sql.toUpperCase(Locale.ROOT);
+        if (upper.startsWith("INSERT INTO")) {
+            addInsert(sql, upper);
+            sawInsert = true;
+            return;
+        }
+        if (upper.startsWith("CREATE TABLE")) {
+            addCreateTable(sql);
+        } else if (sawInsert) {
+            // Replaying it before the rows would change what it does (an UPDATE would see no data)
+            String first = sql.split("\\s+", 2)[0];
+            throw new IllegalStateException(first + " statement after the first INSERT; only INSERT and CREATE TABLE may follow the data: "
+                + (sql.length() > 60 ? sql.substring(0, 60) + "..." : sql));
+        }
+        // use / drop / create carry no data and are replayed before the rows
+        schema.add(sql);
+    }
+
+    private void addCreateTable(String sql) {
+        int open = sql.indexOf('(');
+        int close = sql.lastIndexOf(')');
+        String name = sql.substring("CREATE TABLE".length(), open).trim().toLowerCase(Locale.ROOT);
+        Table table = new Table(name);
+
+        for (String definition : splitTopLevel(sql.substring(open + 1, close))) {
+            String[] words = definition.trim().split("\\s+");
+            if (words.length < 2) {
+                continue;
+            }
+            String first = words[0].toUpperCase(Locale.ROOT);
+            if (first.equals("PRIMARY") || first.equals("FOREIGN") || first.equals("CONSTRAINT")) {
+                continue; // table-level constraint, not a column
+            }
+            table.columns.add(words[0].toLowerCase(Locale.ROOT));
+            table.types.add(localType(words[1]));
+
+            // Inline constraints: "... primary key", "... REFERENCES team(team_abbr)"
+            String upper = definition.toUpperCase(Locale.ROOT);
+            if (upper.contains("PRIMARY KEY")) {
+                table.primaryKey = table.columns.size() - 1;
+            }
+            int references = upper.indexOf("REFERENCES");
+            if (references >= 0) {
+                String target = definition.substring(references + "REFERENCES".length()).trim();
+                int paren = target.indexOf('(');
+                table.references.put(table.columns.size() - 1, new String[] {
+                    target.substring(0, paren).trim().toLowerCase(Locale.ROOT),
+                    target.substring(paren + 1, target.indexOf(')')).trim().toLowerCase(Locale.ROOT)
+                });
+            }
+        }
+        tables.put(name, table);
+    }
+
+    private static int localType(String sqlType) {
+        String type = sqlType.toUpperCase(Locale.ROOT);
+        if (type.startsWith("INT") || type.startsWith("SMALLINT") || type.startsWith("BIGINT")) {
+            return TYPE_INT;
+        }
+        if (type.startsWith("DECIMAL") || type.startsWith("NUMERIC") || type.startsWith("FLOAT") || type.startsWith("REAL")) {
+            return TYPE_DOUBLE;
+        }
+        return TYPE_STRING;
+    }
+
+    private void addInsert(String sql, String upper) {
+        int open = sql.indexOf('(');
+        int valuesAt = upper.indexOf("VALUES", open);
+        String name = sql.substring("INSERT INTO".length(), open).trim().toLowerCase(Locale.ROOT);
+        Table table = tables.get(name);
+        if (table == null) {
+            throw new IllegalStateException("INSERT into " + name + " before its CREATE TABLE");
+        }
+
+        // Map the INSERT column order onto the CREATE TABLE column order
+        List<String> insertColumns = new ArrayList<>();
+        for (String column : sql.substring(open + 1, sql.lastIndexOf(')', valuesAt)).split(",")) {
+            insertColumns.add(column.trim().toLowerCase(Locale.ROOT));
+        }
+        int[] target = new int[insertColumns.size()];
+        for (int i = 0; i < target.length; i++) {
+            target[i] = table.columnIndex(insertColumns.get(i));
+            if (target[i] < 0) {
+                throw new IllegalStateException("Unknown column " + insertColumns.get(i) + " in INSERT into " + name);
+            }
+        }
+
+        for (List<String> tuple : parseTuples(sql, valuesAt + "VALUES".length())) {
+            if (tuple.size() != target.length) {
+                table.malformed.add(new Malformed(insertColumns, tuple)); // reported by LoadValidator instead of failing the whole file
+                continue;
+            }
+            String[] row = new String[table.columns.size()];
+            for (int i = 0; i < target.length; i++) {
+                row[target[i]] = tuple.get(i);
+            }
+            table.rows.add(row);
+        }
+    }
+
+    // --- Split "a INT, b DECIMAL(10, 2)" on commas that are not inside parentheses ---
+    private static List<String> splitTopLevel(String body) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(body.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(body.substring(start));
+        return parts;
+    }
+
+    // --- Parse "(1, 'a''b', NULL), (...)" into raw values ('' unescaped, NULL as null) ---
+    static List<List<String>> parseTuples(String sql, int from) {
+        List<List<String>> tuples = new ArrayList<>();
+        List<String> current = null;
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        int i = from;
+
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (current == null) {
+                if (c == '(') {
+                    current = new ArrayList<>();
+                    value.setLength(0);
+                    quoted = false;
+                }
+                i++;
+            } else if (c == '\'') {
+                // Quoted literal; '' is an escaped quote
+                quoted = true;
+                i++;
+                while (i < sql.length()) {
+                    char q = sql.charAt(i);
+                    if (q == '\'') {
+                        if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                            value.append('\'');
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    value.append(q);
+                    i++;
+                }
+            } else if (c == ',' || c == ')') {
+                current.add(rawValue(value, quoted));
+                value.setLength(0);
+                quoted = false;
+                if (c == ')') {
+                    tuples.add(current);
+                    current = null;
+                }
+                i++;
+            } else {
+                if (!Character.isWhitespace(c)) {
+                    value.append(c);
+                }
+                i++;
+            }
+        }
+        return tuples;
+    }
+
+    private static String rawValue(StringBuilder value, boolean quoted) {
+        String text = value.toString();
+        if (!quoted && text.equalsIgnoreCase("NULL")) {
+            return null;
+        }
+        return text;
+    }
+}